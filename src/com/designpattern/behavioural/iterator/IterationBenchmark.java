@@ -0,0 +1,61 @@
+package com.designpattern.behavioural.iterator;
+
+import java.util.Arrays;
+
+/*
+Sums the title lengths of a 100M-entry playlist (1000 distinct titles) element by element through
+hasNext()/next(), in batches of 1024 through next(into, max), and through sequential and parallel streams over
+the playlist's Spliterator. Reports millions of entries per second.
+ */
+public class IterationBenchmark {
+
+    private static final int ENTRIES = 100_000_000;
+    private static final int BATCH = 1024;
+
+    public static void main(String[] args) {
+        String[] titles = new String[1000];
+        for (int i = 0; i < titles.length; i++)
+            titles[i] = "Track " + i + " - " + "Artist " + (i % 37);
+        String[] entries = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++)
+            entries[i] = titles[i % titles.length];
+        Playlist playlist = new Playlist(Arrays.asList(entries));
+
+        for (int run = 1; run <= 3; run++) {
+            long start = System.nanoTime();
+            long elementSum = 0;
+            Iterator<String> iterator = playlist.createIterator();
+            while (iterator.hasNext())
+                elementSum += iterator.next().length();
+            double elementRate = rate(start);
+
+            start = System.nanoTime();
+            long batchSum = 0;
+            String[] batch = new String[BATCH];
+            Iterator<String> batches = playlist.createIterator();
+            for (int count = batches.next(batch, BATCH); count > 0; count = batches.next(batch, BATCH)) {
+                for (int i = 0; i < count; i++)
+                    batchSum += batch[i].length();
+            }
+            double batchRate = rate(start);
+
+            start = System.nanoTime();
+            long streamSum = playlist.stream().mapToLong(String::length).sum();
+            double streamRate = rate(start);
+
+            start = System.nanoTime();
+            long parallelSum = playlist.parallelStream().mapToLong(String::length).sum();
+            double parallelRate = rate(start);
+
+            if (elementSum != batchSum || batchSum != streamSum || streamSum != parallelSum)
+                throw new IllegalStateException("Iteration methods disagree");
+            System.out.printf("Run %d: element-wise %.0f M/s, batched %.0f M/s, stream %.0f M/s, parallel stream %.0f M/s "
+                            + "on %d cores%n", run, elementRate, batchRate, streamRate, parallelRate,
+                    Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    private static double rate(long start) {
+        return ENTRIES * 1e3 / (System.nanoTime() - start);
+    }
+}
@@ -4,13 +4,52 @@ package com.designpattern.behavioural.iterator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 interface Iterator<T> {
     boolean hasNext();
     T next();
+
+    // Copies up to max of the next elements into the array and returns how many it copied, 0 at the end or when
+    // max is not positive
+    default int next(T[] into, int max) {
+        int count = 0;
+        while (count < max && hasNext())
+            into[count++] = next();
+        return count;
+    }
 }
 interface IterableCollection<T> {
     Iterator<T> createIterator();
+
+    // Collections that know their size should override this with a sized, evenly splitting Spliterator
+    default Spliterator<T> spliterator() {
+        Iterator<T> iterator = createIterator();
+        return Spliterators.spliteratorUnknownSize(new java.util.Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+        }, Spliterator.ORDERED);
+    }
+
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
 
 class Playlist implements IterableCollection<String> {
@@ -25,6 +64,11 @@ class Playlist implements IterableCollection<String> {
     public Iterator<String> createIterator() {
         return new SongIterator(songs);
     }
+
+    @Override
+    public Spliterator<String> spliterator() {
+        return songs instanceof RandomAccess ? new SongSpliterator(songs, 0, songs.size()) : songs.spliterator();
+    }
 }
 
 class SongIterator implements Iterator<String> {
@@ -44,6 +88,67 @@ class SongIterator implements Iterator<String> {
     public String next() {
         return hasNext() ? songs.get(position++) : null;
     }
+
+    @Override
+    public int next(String[] into, int max) {
+        // a negative max copies nothing, as in the default, instead of moving position backwards
+        int count = Math.max(0, Math.min(max, songs.size() - position));
+        for (int i = 0; i < count; i++)
+            into[i] = songs.get(position + i);
+        position += count;
+        return count;
+    }
+}
+
+/*
+Spliterator over the index range [index, fence) of a random-access song list. trySplit() hands off the first half,
+so parallel streams split a playlist into equal parts and know the size of each.
+ */
+class SongSpliterator implements Spliterator<String> {
+    private final List<String> songs;
+    private int index;
+    private final int fence;
+
+    SongSpliterator(List<String> songs, int index, int fence) {
+        this.songs = songs;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        if (index >= fence)
+            return false;
+        action.accept(songs.get(index++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        for (int i = index; i < fence; i++)
+            action.accept(songs.get(i));
+        index = fence;
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        int middle = (index + fence) >>> 1;
+        if (middle <= index)
+            return null;
+        Spliterator<String> firstHalf = new SongSpliterator(songs, index, middle);
+        index = middle;
+        return firstHalf;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED;
+    }
 }
 
 public class IteratorPatternDemo {
@@ -53,5 +158,11 @@ public class IteratorPatternDemo {
         while (iterator.hasNext()) {
             System.out.println(iterator.next());
         }
+
+        String[] batch = new String[2];
+        Iterator<String> batches = playlist.createIterator();
+        for (int count = batches.next(batch, batch.length); count > 0; count = batches.next(batch, batch.length))
+            System.out.println("Batch: " + Arrays.asList(batch).subList(0, count));
+        System.out.println("Total title length: " + playlist.parallelStream().mapToInt(String::length).sum());
     }
 }
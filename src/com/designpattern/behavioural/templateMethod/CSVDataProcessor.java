@@ -0,0 +1,373 @@
+package com.designpattern.behavioural.templateMethod;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+enum CsvColumnType {
+    LONG, DOUBLE, TEXT, SKIP
+}
+
+/*
+Loads a CSV file by memory mapping it instead of reading it into the heap.
+loadData() cuts the file into splits that end on a record boundary and maps each one,
+processData() parses the splits in parallel on a fork/join pool, and saveData() reports the column totals.
+Fields are parsed straight from the mapped bytes: numbers go into primitive columns and text columns
+only remember where the value is, so no String is created per field.
+Quoted fields are not supported, a ',' or '\n' always ends a field.
+ */
+class CSVDataProcessor extends DataProcessor {
+
+    static final int DEFAULT_SPLIT_SIZE = 64 << 20;
+
+    private final Path file;
+    private final CsvColumnType[] schema;
+    private final boolean hasHeader;
+    private final int splitSize;
+    private final ForkJoinPool pool;
+
+    private MappedByteBuffer[] splits;
+    private CsvChunk[] chunks;
+
+    public CSVDataProcessor(Path file, CsvColumnType... schema) {
+        this(file, true, DEFAULT_SPLIT_SIZE, ForkJoinPool.commonPool(), schema);
+    }
+
+    public CSVDataProcessor(Path file, boolean hasHeader, int splitSize, ForkJoinPool pool, CsvColumnType... schema) {
+        if (schema.length == 0)
+            throw new IllegalArgumentException("Schema needs at least one column");
+        this.file = file;
+        this.hasHeader = hasHeader;
+        this.splitSize = splitSize;
+        this.pool = pool;
+        this.schema = schema.clone();
+    }
+
+    @Override
+    protected void loadData() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = hasHeader ? nextRecordStart(channel, 0, size) : 0;
+            List<MappedByteBuffer> mapped = new ArrayList<>();
+            while (position < size) {
+                long end = Math.min(position + splitSize, size);
+                if (end < size)
+                    end = nextRecordStart(channel, end - 1, size);
+                if (end - position > Integer.MAX_VALUE)
+                    throw new IllegalStateException("Record starting near offset " + position + " is too long to map");
+                mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, position, end - position));
+                position = end;
+            }
+            splits = mapped.toArray(new MappedByteBuffer[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map " + file, e);
+        }
+    }
+
+    @Override
+    protected void processData() {
+        if (splits == null)
+            throw new IllegalStateException("loadData must run before processData");
+        chunks = new CsvChunk[splits.length];
+        if (splits.length > 0)
+            pool.invoke(new ParseTask(splits, chunks, schema, 0, splits.length));
+    }
+
+    @Override
+    protected void saveData() {
+        System.out.printf("Parsed %d CSV records from %s in %d splits%n", rowCount(), file.getFileName(), chunks.length);
+        for (int column = 0; column < schema.length; column++) {
+            if (schema[column] == CsvColumnType.LONG || schema[column] == CsvColumnType.DOUBLE)
+                System.out.printf("Column %d (%s) total: %s%n", column, schema[column], sum(column));
+        }
+    }
+
+    public long rowCount() {
+        long rows = 0;
+        for (CsvChunk chunk : chunks)
+            rows += chunk.rows();
+        return rows;
+    }
+
+    public double sum(int column) {
+        double sum = 0;
+        for (CsvChunk chunk : chunks) {
+            if (schema[column] == CsvColumnType.LONG) {
+                long[] values = chunk.longs(column);
+                for (int row = 0; row < chunk.rows(); row++)
+                    sum += values[row];
+            } else if (schema[column] == CsvColumnType.DOUBLE) {
+                double[] values = chunk.doubles(column);
+                for (int row = 0; row < chunk.rows(); row++)
+                    sum += values[row];
+            } else {
+                throw new IllegalArgumentException("Column " + column + " is not numeric");
+            }
+        }
+        return sum;
+    }
+
+    // Parsed splits in file order
+    public List<CsvChunk> chunks() {
+        return List.of(chunks);
+    }
+
+    private static long nextRecordStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Serializable only because ForkJoinTask is; a ParseTask lives and dies inside one parse
+    @SuppressWarnings("serial")
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer[] splits;
+        private final CsvChunk[] chunks;
+        private final CsvColumnType[] schema;
+        private final int from;
+        private final int to;
+
+        ParseTask(MappedByteBuffer[] splits, CsvChunk[] chunks, CsvColumnType[] schema, int from, int to) {
+            this.splits = splits;
+            this.chunks = chunks;
+            this.schema = schema;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                // each split writes its own slot, so the merged result keeps file order
+                chunks[from] = CsvChunk.parse(splits[from], schema);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(splits, chunks, schema, from, middle),
+                    new ParseTask(splits, chunks, schema, middle, to));
+        }
+    }
+}
+
+/*
+Columns parsed from one mapped split. TEXT values are kept as offset/length pairs into the split.
+ */
+class CsvChunk {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer data;
+    private final CsvColumnType[] schema;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] textOffsets;
+    private final int[][] textLengths;
+    private int rows;
+    private int capacity;
+
+    private CsvChunk(ByteBuffer data, CsvColumnType[] schema, int capacity) {
+        this.data = data;
+        this.schema = schema;
+        this.capacity = capacity;
+        this.longs = new long[schema.length][];
+        this.doubles = new double[schema.length][];
+        this.textOffsets = new int[schema.length][];
+        this.textLengths = new int[schema.length][];
+        for (int column = 0; column < schema.length; column++) {
+            switch (schema[column]) {
+                case LONG -> longs[column] = new long[capacity];
+                case DOUBLE -> doubles[column] = new double[capacity];
+                case TEXT -> {
+                    textOffsets[column] = new int[capacity];
+                    textLengths[column] = new int[capacity];
+                }
+                case SKIP -> { }
+            }
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public long[] longs(int column) {
+        return longs[column];
+    }
+
+    public double[] doubles(int column) {
+        return doubles[column];
+    }
+
+    // Only place where a String is created, and only when the caller asks for it
+    public String text(int column, int row) {
+        byte[] bytes = new byte[textLengths[column][row]];
+        data.get(textOffsets[column][row], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static CsvChunk parse(ByteBuffer data, CsvColumnType[] schema) {
+        int limit = data.limit();
+        CsvChunk chunk = new CsvChunk(data, schema, Math.max(16, limit / 32));
+        int last = schema.length - 1;
+        int position = 0;
+        while (position < limit) {
+            if (data.get(position) == '\n') {
+                position++;
+                continue;
+            }
+            if (data.get(position) == '\r' && position + 1 < limit && data.get(position + 1) == '\n') {
+                position += 2;
+                continue;
+            }
+            int row = chunk.nextRow();
+            for (int column = 0; column <= last; column++) {
+                int start = position;
+                while (position < limit) {
+                    byte b = data.get(position);
+                    if (b == ',' || b == '\n')
+                        break;
+                    position++;
+                }
+                int end = position;
+                if (end > start && data.get(end - 1) == '\r')
+                    end--;
+                chunk.store(column, row, start, end);
+                boolean comma = position < limit && data.get(position) == ',';
+                if (column < last && !comma)
+                    throw new IllegalArgumentException("Record at split offset " + start + " has " + (column + 1) + " fields, expected " + schema.length);
+                if (column == last && comma)
+                    throw new IllegalArgumentException("Record at split offset " + start + " has more than " + schema.length + " fields");
+                position++;
+            }
+        }
+        return chunk;
+    }
+
+    private int nextRow() {
+        if (rows == capacity) {
+            capacity = capacity + (capacity >> 1) + 16;
+            for (int column = 0; column < schema.length; column++) {
+                if (longs[column] != null)
+                    longs[column] = Arrays.copyOf(longs[column], capacity);
+                if (doubles[column] != null)
+                    doubles[column] = Arrays.copyOf(doubles[column], capacity);
+                if (textOffsets[column] != null) {
+                    textOffsets[column] = Arrays.copyOf(textOffsets[column], capacity);
+                    textLengths[column] = Arrays.copyOf(textLengths[column], capacity);
+                }
+            }
+        }
+        return rows++;
+    }
+
+    private void store(int column, int row, int start, int end) {
+        switch (schema[column]) {
+            case LONG -> longs[column][row] = parseLong(start, end);
+            case DOUBLE -> doubles[column][row] = parseDouble(start, end);
+            case TEXT -> {
+                textOffsets[column][row] = start;
+                textLengths[column][row] = end - start;
+            }
+            case SKIP -> { }
+        }
+    }
+
+    private long parseLong(int start, int end) {
+        int i = start;
+        boolean negative = i < end && data.get(i) == '-';
+        if (negative || (i < end && data.get(i) == '+'))
+            i++;
+        if (i == end)
+            return 0;
+        // up to 18 digits cannot overflow; longer runs are accumulated as a negative number, which also fits
+        // Long.MIN_VALUE, and checked
+        boolean exact = end - i > 18;
+        long value = 0;
+        try {
+            for (; i < end; i++) {
+                int digit = data.get(i) - '0';
+                if (digit < 0 || digit > 9)
+                    throw new NumberFormatException("Invalid integer at split offset " + start);
+                value = exact ? Math.subtractExact(Math.multiplyExact(value, 10), digit) : value * 10 - digit;
+            }
+            return negative ? value : Math.negateExact(value);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Integer out of range at split offset " + start);
+        }
+    }
+
+    private double parseDouble(int start, int end) {
+        int i = start;
+        boolean negative = i < end && data.get(i) == '-';
+        if (negative || (i < end && data.get(i) == '+'))
+            i++;
+        if (i == end)
+            return 0;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        boolean truncated = false;
+        for (; i < end; i++) {
+            byte b = data.get(i);
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0)
+                        digits++;
+                    if (fraction)
+                        exponent--;
+                } else {
+                    truncated = true;
+                    if (!fraction)
+                        exponent++;
+                }
+            } else if (b == 'e' || b == 'E') {
+                // anything past +-400 is outside the range of a double and goes to Double.parseDouble anyway;
+                // clamping first keeps a huge exponent from wrapping into the fast path when cast to int
+                exponent += (int) Math.max(-400, Math.min(400, parseLong(i + 1, end)));
+                break;
+            } else {
+                throw new NumberFormatException("Invalid decimal at split offset " + start);
+            }
+        }
+        double value;
+        if (!truncated && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            // both operands are exact doubles, so one multiply or divide gives the correctly rounded result
+            value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            byte[] bytes = new byte[end - start];
+            data.get(start, bytes);
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        }
+        return negative ? -value : value;
+    }
+}
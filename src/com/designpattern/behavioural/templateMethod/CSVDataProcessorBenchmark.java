@@ -0,0 +1,91 @@
+package com.designpattern.behavioural.templateMethod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+Generates an orders CSV (5 GB by default, pass the size in MB as the first argument)
+and reports parse throughput of CSVDataProcessor in GB/s and GB/s per core.
+Only amount and qty are kept, but a 5 GB file has about 140M rows, and those two columns alone take about 2.6 GB
+of heap with each split's spare capacity, so run the default size with -Xmx4g or pass a smaller size.
+ */
+public class CSVDataProcessorBenchmark {
+
+    private static final byte[][] CITIES = {
+            "Bangalore".getBytes(), "Pune".getBytes(), "Delhi".getBytes(), "Mumbai".getBytes(), "Chennai".getBytes()
+    };
+
+    public static void main(String[] args) throws IOException {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 5 * 1024;
+        int cores = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path file = Files.createTempFile("orders-bench", ".csv");
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        try {
+            long expectedCents = generate(file, sizeMb * 1_048_576);
+            double gb = Files.size(file) / 1e9;
+            for (int run = 1; run <= 3; run++) {
+                CSVDataProcessor processor = new CSVDataProcessor(file, true, CSVDataProcessor.DEFAULT_SPLIT_SIZE, pool,
+                        CsvColumnType.SKIP, CsvColumnType.SKIP, CsvColumnType.SKIP, CsvColumnType.DOUBLE, CsvColumnType.LONG);
+                long start = System.nanoTime();
+                processor.loadData();
+                processor.processData();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                boolean correct = Math.abs(processor.sum(3) * 100 - expectedCents) <= 1e-9 * expectedCents;
+                System.out.printf("Run %d: %.2f GB, %d rows in %.2f s, %.2f GB/s, %.2f GB/s per core on %d cores, totals %s%n",
+                        run, gb, processor.rowCount(), seconds, gb / seconds, gb / seconds / cores, cores,
+                        correct ? "match" : "DO NOT MATCH");
+            }
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Writes rows like "1042,1700000001042,Pune,123.45,7" and returns the sum of the amount column in cents
+    private static long generate(Path file, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(1 << 20);
+        long written = 0;
+        long cents = 0;
+        long id = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            block.put("id,timestamp,city,amount,qty\n".getBytes());
+            while (written < size) {
+                while (block.remaining() >= 64 && written + block.position() < size) {
+                    long amount = (id * 7919) % 100_000;
+                    cents += amount;
+                    putLong(block, id);
+                    block.put((byte) ',');
+                    putLong(block, 1_700_000_000_000L + id);
+                    block.put((byte) ',');
+                    block.put(CITIES[(int) (id % CITIES.length)]);
+                    block.put((byte) ',');
+                    putLong(block, amount / 100);
+                    block.put((byte) '.');
+                    block.put((byte) ('0' + amount / 10 % 10));
+                    block.put((byte) ('0' + amount % 10));
+                    block.put((byte) ',');
+                    putLong(block, id % 10);
+                    block.put((byte) '\n');
+                    id++;
+                }
+                block.flip();
+                written += block.remaining();
+                while (block.hasRemaining())
+                    channel.write(block);
+                block.clear();
+            }
+        }
+        return cents;
+    }
+
+    private static void putLong(ByteBuffer buffer, long value) {
+        if (value >= 10)
+            putLong(buffer, value / 10);
+        buffer.put((byte) ('0' + value % 10));
+    }
+}
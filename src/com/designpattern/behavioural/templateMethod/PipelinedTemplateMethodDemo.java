@@ -0,0 +1,233 @@
+package com.designpattern.behavioural.templateMethod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Streaming variant of DataProcessor. Instead of loading the whole dataset, processing it and then saving it,
+subclasses work on one chunk at a time and the three stages run on their own threads, so reading, computing
+and writing overlap. A fixed set of buffers circulates between the stages through bounded queues,
+so memory use depends on chunkSize * buffers and not on the size of the input.
+ */
+abstract class PipelinedDataProcessor {
+
+    private static final Chunk END = new Chunk(ByteBuffer.allocate(0));
+
+    private final int chunkSize;
+    private final int buffers;
+
+    protected PipelinedDataProcessor(int chunkSize, int buffers) {
+        if (chunkSize <= 0 || buffers < 3)
+            throw new IllegalArgumentException("chunkSize must be positive and at least 3 buffers are needed");
+        this.chunkSize = chunkSize;
+        this.buffers = buffers;
+    }
+
+    //template method
+    public final PipelineStats process() {
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(buffers);
+        BlockingQueue<Chunk> loaded = new ArrayBlockingQueue<>(buffers + 1);
+        BlockingQueue<Chunk> processed = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++)
+            free.add(new Chunk(ByteBuffer.allocateDirect(chunkSize)));
+
+        PipelineStats stats = new PipelineStats();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+        try {
+            stages.submit(stage(() -> {
+                while (true) {
+                    Chunk chunk = free.take();
+                    chunk.data.clear();
+                    long t = System.nanoTime();
+                    int read = loadChunk(chunk.data);
+                    stats.loadNanos += System.nanoTime() - t;
+                    if (read < 0) {
+                        loaded.put(END);
+                        return;
+                    }
+                    chunk.data.flip();
+                    stats.bytes += chunk.data.remaining();
+                    stats.chunks++;
+                    loaded.put(chunk);
+                }
+            }));
+            stages.submit(stage(() -> {
+                Chunk chunk;
+                while ((chunk = loaded.take()) != END) {
+                    long t = System.nanoTime();
+                    processChunk(chunk.data);
+                    stats.processNanos += System.nanoTime() - t;
+                    processed.put(chunk);
+                }
+                processed.put(END);
+            }));
+            stages.submit(stage(() -> {
+                Chunk chunk;
+                while ((chunk = processed.take()) != END) {
+                    long t = System.nanoTime();
+                    saveChunk(chunk.data);
+                    stats.saveNanos += System.nanoTime() - t;
+                    free.put(chunk);
+                }
+                long t = System.nanoTime();
+                finish();
+                stats.saveNanos += System.nanoTime() - t;
+            }));
+            for (int i = 0; i < 3; i++)
+                stages.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Pipeline interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Pipeline stage failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        stats.wallNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    // Fill the buffer with the next chunk of input, returning the number of bytes read or -1 at the end
+    protected abstract int loadChunk(ByteBuffer buffer) throws IOException;
+    protected abstract void processChunk(ByteBuffer buffer);
+    protected abstract void saveChunk(ByteBuffer buffer) throws IOException;
+
+    // Called once on the save thread after the last chunk has been saved
+    protected void finish() throws IOException {
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static Callable<Void> stage(Stage stage) {
+        return () -> {
+            stage.run();
+            return null;
+        };
+    }
+
+    private static final class Chunk {
+        private final ByteBuffer data;
+
+        Chunk(ByteBuffer data) {
+            this.data = data;
+        }
+    }
+}
+
+class PipelineStats {
+    // each field is written by a single stage thread and read after the executor has finished
+    long bytes;
+    long chunks;
+    long loadNanos;
+    long processNanos;
+    long saveNanos;
+    long wallNanos;
+
+    public double throughputMBps() {
+        return bytes / 1_048_576.0 / (wallNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Processed %d MB in %d chunks, %.1f MB/s, utilisation load %.0f%%, process %.0f%%, save %.0f%%",
+                bytes / 1_048_576, chunks, throughputMBps(),
+                100.0 * loadNanos / wallNanos, 100.0 * processNanos / wallNanos, 100.0 * saveNanos / wallNanos);
+    }
+}
+
+class UpperCaseFileProcessor extends PipelinedDataProcessor {
+
+    private final FileChannel in;
+    private final FileChannel out;
+
+    UpperCaseFileProcessor(FileChannel in, FileChannel out, int chunkSize, int buffers) {
+        super(chunkSize, buffers);
+        this.in = in;
+        this.out = out;
+    }
+
+    @Override
+    protected int loadChunk(ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    @Override
+    protected void processChunk(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b >= 'a' && b <= 'z')
+                buffer.put(i, (byte) (b - 32));
+        }
+    }
+
+    @Override
+    protected void saveChunk(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        out.force(false);
+    }
+}
+
+public class PipelinedTemplateMethodDemo {
+    public static void main(String[] args) throws IOException {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 256;
+        Path input = Files.createTempFile("pipeline-in", ".txt");
+        Path output = Files.createTempFile("pipeline-out", ".txt");
+        try {
+            writeSample(input, sizeMb * 1_048_576);
+            try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                PipelineStats stats = new UpperCaseFileProcessor(in, out, 1 << 20, 8).process();
+                System.out.println(stats);
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private static void writeSample(Path path, long size) throws IOException {
+        byte[] line = "id,name,city,amount\n1,vivek,bangalore,1200\n".getBytes();
+        ByteBuffer block = ByteBuffer.allocate(1 << 20);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < size) {
+                block.clear();
+                while (block.remaining() >= line.length)
+                    block.put(line);
+                block.flip();
+                block.limit((int) Math.min(block.limit(), size - written));
+                written += block.remaining();
+                while (block.hasRemaining())
+                    channel.write(block);
+            }
+        }
+    }
+}
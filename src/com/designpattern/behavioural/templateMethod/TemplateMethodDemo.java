@@ -1,5 +1,9 @@
 package com.designpattern.behavioural.templateMethod;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 abstract class DataProcessor {
 
     //template method
@@ -14,46 +18,21 @@ abstract class DataProcessor {
     protected abstract void saveData();
 
 }
-class CSVDataProcessor extends DataProcessor {
-
-    @Override
-    protected void loadData() {
-        System.out.println("Loading CSV Data");
-    }
-
-    @Override
-    protected void processData() {
-        System.out.println("Processing CSV Data");
-    }
-
-    @Override
-    protected void saveData() {
-        System.out.println("Saving CSV Data");
-    }
-}
-class XMLDataProcessor extends DataProcessor {
-
-    @Override
-    protected void loadData() {
-        System.out.println("Loading XML Data");
-    }
-
-    @Override
-    protected void processData() {
-        System.out.println("Processing XML Data");
-    }
-
-    @Override
-    protected void saveData() {
-        System.out.println("Saving XML Data");
-    }
-}
-
 public class TemplateMethodDemo {
-    public static void main(String[] args) {
-        DataProcessor csvProcessor = new CSVDataProcessor();
-        DataProcessor xmlProcessor = new XMLDataProcessor();
+    public static void main(String[] args) throws IOException {
+        Path csv = Files.createTempFile("orders", ".csv");
+        Files.writeString(csv, "id,city,amount\n1,Bangalore,120.50\n2,Pune,99.99\n3,Delhi,15\n");
+        DataProcessor csvProcessor = new CSVDataProcessor(csv, CsvColumnType.LONG, CsvColumnType.TEXT, CsvColumnType.DOUBLE);
+        Path xml = Files.createTempFile("orders", ".xml");
+        Files.writeString(xml, "<orders><order id=\"1\"><city>Bangalore</city><amount>120.50</amount></order>"
+                + "<order id=\"2\"><city>Pune</city><amount>99.99</amount></order></orders>");
+        DataProcessor xmlProcessor = new XMLDataProcessor(xml, "order", 100, (batch, size) -> {
+            for (int i = 0; i < size; i++)
+                System.out.println(batch[i]);
+        });
         csvProcessor.process();
         xmlProcessor.process();
+        Files.delete(csv);
+        Files.delete(xml);
     }
 }
@@ -0,0 +1,230 @@
+package com.designpattern.behavioural.templateMethod;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Receives records from XMLDataProcessor a batch at a time.
+The records are reused for the next batch, so copy anything that has to outlive the call.
+ */
+interface XmlRecordSink {
+    void accept(XmlRecord[] batch, int size);
+
+    default void close() {
+    }
+}
+
+/*
+One repeating element such as <order id="7"><city>Pune</city></order>, flattened to name/value pairs.
+Attributes and child elements both become fields. Names are the canonical instances from XMLDataProcessor's
+name table, and values are kept in reusable builders so reading a record does not create Strings.
+ */
+class XmlRecord {
+    private String[] names = new String[8];
+    private StringBuilder[] values = new StringBuilder[8];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int field) {
+        return names[field];
+    }
+
+    public CharSequence value(int field) {
+        return values[field];
+    }
+
+    public CharSequence get(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i] == name || names[i].equals(name))
+                return values[i];
+        }
+        return null;
+    }
+
+    public long getLong(String name) {
+        CharSequence value = get(name);
+        if (value == null || value.length() == 0)
+            return 0;
+        int i = 0;
+        boolean negative = value.charAt(0) == '-';
+        if (negative || value.charAt(0) == '+')
+            i++;
+        // accumulated as a negative number, like CSVDataProcessor.parseLong, so Long.MIN_VALUE fits too
+        long result = 0;
+        try {
+            for (; i < value.length(); i++) {
+                int digit = value.charAt(i) - '0';
+                if (digit < 0 || digit > 9)
+                    throw new NumberFormatException("Field " + name + " is not an integer: " + value);
+                result = Math.subtractExact(Math.multiplyExact(result, 10), digit);
+            }
+            return negative ? result : Math.negateExact(result);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Field " + name + " is out of range for a long: " + value);
+        }
+    }
+
+    StringBuilder startField(String name) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        if (values[size] == null)
+            values[size] = new StringBuilder(32);
+        names[size] = name;
+        StringBuilder value = values[size++];
+        value.setLength(0);
+        return value;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("XmlRecord [");
+        for (int i = 0; i < size; i++)
+            builder.append(i == 0 ? " " : ", ").append(names[i]).append(" : ").append(values[i]);
+        return builder.append(" ]").toString();
+    }
+}
+
+/*
+Streams an XML file with a StAX pull parser instead of building a DOM.
+loadData() opens the file, processData() parses it, pulling one <recordElement> at a time and handing each batch to
+the sink as soon as it fills up, and closes it again; saveData() closes the sink. Only one batch of records is ever held,
+so memory does not grow with the size of the file.
+ */
+class XMLDataProcessor extends DataProcessor {
+
+    private final Path file;
+    private final String recordElement;
+    private final int batchSize;
+    private final XmlRecordSink sink;
+    private final Map<String, String> names = new HashMap<>();
+
+    private final XMLInputFactory factory = XMLInputFactory.newFactory();
+    private InputStream input;
+    private long records;
+    private long batches;
+
+    public XMLDataProcessor(Path file, String recordElement, int batchSize, XmlRecordSink sink) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batchSize must be positive");
+        this.file = file;
+        this.recordElement = intern(recordElement);
+        this.batchSize = batchSize;
+        this.sink = sink;
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    }
+
+    @Override
+    protected void loadData() {
+        try {
+            input = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + file, e);
+        }
+    }
+
+    @Override
+    protected void processData() {
+        if (input == null)
+            throw new IllegalStateException("loadData must run before processData");
+        XmlRecord[] batch = new XmlRecord[batchSize];
+        for (int i = 0; i < batchSize; i++)
+            batch[i] = new XmlRecord();
+        int filled = 0;
+        XmlRecord record = null;
+        StringBuilder field = null;
+        int depth = 0;
+        // the parser and the file are closed here even when parsing or the sink fails, since saveData() will not run then
+        try (InputStream input = this.input) {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            if (record == null) {
+                                if (intern(reader.getLocalName()) == recordElement) {
+                                    record = batch[filled];
+                                    record.clear();
+                                    for (int i = 0; i < reader.getAttributeCount(); i++)
+                                        record.startField(intern(reader.getAttributeLocalName(i))).append(reader.getAttributeValue(i));
+                                    depth = 0;
+                                }
+                            } else if (++depth == 1) {
+                                field = record.startField(intern(reader.getLocalName()));
+                            }
+                        }
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                            if (field != null)
+                                field.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            if (record == null)
+                                break;
+                            if (depth == 0) {
+                                record = null;
+                                records++;
+                                if (++filled == batchSize) {
+                                    sink.accept(batch, filled);
+                                    batches++;
+                                    filled = 0;
+                                }
+                            } else if (--depth == 0) {
+                                field = null;
+                            }
+                        }
+                        default -> { }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Malformed XML in " + file + " after " + records + " records", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close " + file, e);
+        } finally {
+            input = null;
+        }
+        if (filled > 0) {
+            sink.accept(batch, filled);
+            batches++;
+        }
+    }
+
+    @Override
+    protected void saveData() {
+        sink.close();
+        System.out.printf("Streamed %d XML records from %s in %d batches%n", records, file.getFileName(), batches);
+    }
+
+    public long recordCount() {
+        return records;
+    }
+
+    // Element and attribute names repeat for every record, so keep one instance of each
+    private String intern(String name) {
+        String canonical = names.putIfAbsent(name, name);
+        return canonical == null ? name : canonical;
+    }
+}
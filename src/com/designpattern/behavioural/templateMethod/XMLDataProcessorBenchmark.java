@@ -0,0 +1,78 @@
+package com.designpattern.behavioural.templateMethod;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+Generates an orders XML file (2 GB by default, pass the size in MB as the first argument) and streams it
+through XMLDataProcessor, reporting records/sec and the peak heap used while parsing.
+Run it with a small heap such as -Xmx64m to see that memory does not depend on the file size.
+ */
+public class XMLDataProcessorBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 2 * 1024;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        Path file = Files.createTempFile("orders-bench", ".xml");
+        try {
+            long expectedIds = generate(file, sizeMb * 1_048_576);
+            for (int run = 1; run <= 3; run++) {
+                long[] idTotal = new long[1];
+                XMLDataProcessor processor = new XMLDataProcessor(file, "order", batchSize, (batch, size) -> {
+                    for (int i = 0; i < size; i++)
+                        idTotal[0] += batch[i].getLong("id");
+                });
+                System.gc();
+                resetPeakHeap();
+                long start = System.nanoTime();
+                processor.process();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Run %d: %.2f GB, %.0f records/sec, %.1f MB/s, peak heap %.1f MB, ids %s%n",
+                        run, Files.size(file) / 1e9, processor.recordCount() / seconds, Files.size(file) / 1_048_576.0 / seconds,
+                        peakHeap() / 1_048_576.0, idTotal[0] == expectedIds ? "match" : "DO NOT MATCH");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Returns the sum of all generated ids so the run can be checked
+    private static long generate(Path file, long size) throws IOException {
+        String[] cities = {"Bangalore", "Pune", "Delhi", "Mumbai", "Chennai"};
+        long ids = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<orders>\n");
+            long written = 0;
+            for (long id = 0; written < size; id++) {
+                String order = "  <order id=\"" + id + "\"><city>" + cities[(int) (id % cities.length)]
+                        + "</city><amount>" + (id * 7919 % 100_000) / 100.0 + "</amount><qty>" + id % 10 + "</qty></order>\n";
+                writer.write(order);
+                written += order.length();
+                ids += id;
+            }
+            writer.write("</orders>\n");
+        }
+        return ids;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
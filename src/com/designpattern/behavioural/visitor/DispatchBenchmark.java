@@ -0,0 +1,146 @@
+package com.designpattern.behavioural.visitor;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/*
+Compares classic accept() double dispatch with a sealed pattern switch and a typeId jump table
+when 2, 8 and 32 shape types flow through the same call site.
+
+The demo only has Circle and Rectangle, so the benchmark generates its own hierarchy: a sealed BenchShape with
+TYPES final subclasses, a visitor with one visit method per subclass, and the three dispatch loops, the pattern
+switch and the typeId tableswitch with one case per subclass. The source is written to a temporary directory,
+compiled with the JDK's compiler and loaded from there, so it needs a JDK rather than a JRE.
+
+Run with -XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining to see accept() reported as megamorphic
+(not inlined) once more than two types have been seen. The pattern switch is compiled to an invokedynamic
+through SwitchBootstraps.typeSwitch, and whether its type tests end up inlined depends on the JDK; the typeId switch
+is a plain tableswitch in the loop.
+ */
+public class DispatchBenchmark {
+
+    static final int TYPES = 32;
+    private static final String GENERATED = "GeneratedDispatch";
+
+    // Implemented by the generated class; shape arrays are passed as Object[] since their type is generated too
+    public interface Kernels {
+        Object[] shapes(int count, int types, long seed);
+
+        double classic(Object[] shapes);
+
+        double patternSwitch(Object[] shapes);
+
+        double typeIdSwitch(Object[] shapes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path directory = Files.createTempDirectory("dispatch-benchmark");
+        try (URLClassLoader loader = compile(directory)) {
+            Kernels kernels = (Kernels) loader.loadClass(GENERATED).getDeclaredConstructor().newInstance();
+            // increasing order matters: each step adds types to call sites that have already been profiled
+            for (int types : new int[]{2, 8, TYPES}) {
+                Object[] shapes = kernels.shapes(count, types, types);
+                for (int run = 1; run <= 3; run++) {
+                    long start = System.nanoTime();
+                    double classic = kernels.classic(shapes);
+                    long classicNanos = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    double pattern = kernels.patternSwitch(shapes);
+                    long patternNanos = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    double jump = kernels.typeIdSwitch(shapes);
+                    long jumpNanos = System.nanoTime() - start;
+                    System.out.printf("%2d types, run %d: accept %.2f ns/shape, pattern switch %.2f ns/shape, typeId switch %.2f ns/shape%s%n",
+                            types, run, (double) classicNanos / count, (double) patternNanos / count, (double) jumpNanos / count,
+                            classic == pattern && pattern == jump ? "" : " (totals differ)");
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(DispatchBenchmark::delete);
+            }
+        }
+    }
+
+    private static URLClassLoader compile(Path directory) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("DispatchBenchmark generates its shapes and needs a JDK to compile them");
+        Path source = directory.resolve(GENERATED + ".java");
+        Files.writeString(source, source());
+        int status = compiler.run(null, null, null, "-d", directory.toString(),
+                "-cp", System.getProperty("java.class.path"), source.toString());
+        if (status != 0)
+            throw new IllegalStateException("Generated dispatch source did not compile");
+        return new URLClassLoader(new URL[]{directory.toUri().toURL()}, DispatchBenchmark.class.getClassLoader());
+    }
+
+    // Source of the generated hierarchy; shape i has area (i + 1) * size^2 so every case does different work
+    static String source() {
+        StringBuilder out = new StringBuilder();
+        out.append("import ").append(Kernels.class.getCanonicalName()).append(";\n\n");
+        out.append("sealed abstract class BenchShape permits ");
+        for (int i = 0; i < TYPES; i++)
+            out.append(i == 0 ? "" : ", ").append("BenchShape").append(i);
+        out.append(" {\n    final int typeId;\n    final double size;\n\n");
+        out.append("    BenchShape(int typeId, double size) {\n        this.typeId = typeId;\n        this.size = size;\n    }\n\n");
+        out.append("    abstract void accept(BenchAreaVisitor visitor);\n}\n\n");
+        for (int i = 0; i < TYPES; i++) {
+            out.append("final class BenchShape").append(i).append(" extends BenchShape {\n");
+            out.append("    BenchShape").append(i).append("(double size) {\n        super(").append(i).append(", size);\n    }\n\n");
+            out.append("    void accept(BenchAreaVisitor visitor) {\n        visitor.visit").append(i).append("(this);\n    }\n}\n\n");
+        }
+        out.append("class BenchAreaVisitor {\n    double total;\n");
+        for (int i = 0; i < TYPES; i++) {
+            out.append("\n    void visit").append(i).append("(BenchShape").append(i).append(" shape) {\n");
+            out.append("        total += ").append(i + 1).append(".0 * shape.size * shape.size;\n    }\n");
+        }
+        out.append("}\n\n");
+
+        out.append("public class ").append(GENERATED).append(" implements Kernels {\n\n");
+        out.append("    public Object[] shapes(int count, int types, long seed) {\n");
+        out.append("        java.util.Random random = new java.util.Random(seed);\n");
+        out.append("        BenchShape[] shapes = new BenchShape[count];\n");
+        out.append("        for (int i = 0; i < count; i++) {\n            double size = random.nextDouble();\n");
+        out.append("            shapes[i] = switch (random.nextInt(types)) {\n");
+        for (int i = 0; i < TYPES; i++)
+            out.append("                case ").append(i).append(" -> new BenchShape").append(i).append("(size);\n");
+        out.append("                default -> throw new IllegalArgumentException(\"At most ").append(TYPES).append(" types\");\n");
+        out.append("            };\n        }\n        return shapes;\n    }\n\n");
+
+        out.append("    public double classic(Object[] shapes) {\n        BenchAreaVisitor visitor = new BenchAreaVisitor();\n");
+        out.append("        for (BenchShape shape : (BenchShape[]) shapes)\n            shape.accept(visitor);\n");
+        out.append("        return visitor.total;\n    }\n\n");
+
+        out.append("    public double patternSwitch(Object[] shapes) {\n        BenchAreaVisitor visitor = new BenchAreaVisitor();\n");
+        out.append("        for (BenchShape shape : (BenchShape[]) shapes) {\n            switch (shape) {\n");
+        for (int i = 0; i < TYPES; i++)
+            out.append("                case BenchShape").append(i).append(" s -> visitor.visit").append(i).append("(s);\n");
+        out.append("            }\n        }\n        return visitor.total;\n    }\n\n");
+
+        out.append("    public double typeIdSwitch(Object[] shapes) {\n        BenchAreaVisitor visitor = new BenchAreaVisitor();\n");
+        out.append("        for (BenchShape shape : (BenchShape[]) shapes) {\n            switch (shape.typeId) {\n");
+        for (int i = 0; i < TYPES; i++)
+            out.append("                case ").append(i).append(" -> visitor.visit").append(i)
+                    .append("((BenchShape").append(i).append(") shape);\n");
+        out.append("                default -> throw new IllegalStateException(\"Unknown type id \" + shape.typeId);\n");
+        out.append("            }\n        }\n        return visitor.total;\n    }\n}\n");
+        return out.toString();
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not delete " + path, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.designpattern.behavioural.visitor;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/*
+Applies a Visitor to a large collection of shapes on a fork/join pool.
+The collection's Spliterator is split in halves until a piece has at most leafSize shapes, each piece is visited
+by its own visitor from the factory, and the partial visitors are merged pairwise with the combiner, left before right.
+The split depends only on the collection size and leafSize, never on the number of threads or on which worker
+ran which piece, so a combiner with compensated summation (see AreaTotal) gives the same bits on 1 or N cores.
+ */
+class ParallelShapeTraversal {
+
+    static final int DEFAULT_LEAF_SIZE = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int leafSize;
+
+    public ParallelShapeTraversal(ForkJoinPool pool, int leafSize) {
+        if (leafSize <= 0)
+            throw new IllegalArgumentException("leafSize must be positive");
+        this.pool = pool;
+        this.leafSize = leafSize;
+    }
+
+    public ParallelShapeTraversal() {
+        this(ForkJoinPool.commonPool(), DEFAULT_LEAF_SIZE);
+    }
+
+    public <V extends Visitor> V traverse(Collection<? extends Shape> shapes, Supplier<V> visitorFactory, BinaryOperator<V> combiner) {
+        return pool.invoke(new TraversalTask<>(shapes.spliterator(), visitorFactory, combiner, leafSize));
+    }
+
+    // ForkJoinTask is Serializable, but these tasks never leave the pool, so their fields need not be
+    @SuppressWarnings("serial")
+    private static final class TraversalTask<V extends Visitor> extends RecursiveTask<V> {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<? extends Shape> shapes;
+        private final Supplier<V> visitorFactory;
+        private final BinaryOperator<V> combiner;
+        private final int leafSize;
+
+        TraversalTask(Spliterator<? extends Shape> shapes, Supplier<V> visitorFactory, BinaryOperator<V> combiner, int leafSize) {
+            this.shapes = shapes;
+            this.visitorFactory = visitorFactory;
+            this.combiner = combiner;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected V compute() {
+            Spliterator<? extends Shape> prefix;
+            if (shapes.estimateSize() > leafSize && (prefix = shapes.trySplit()) != null) {
+                TraversalTask<V> left = new TraversalTask<>(prefix, visitorFactory, combiner, leafSize);
+                left.fork();
+                V right = new TraversalTask<>(shapes, visitorFactory, combiner, leafSize).compute();
+                return combiner.apply(left.join(), right);
+            }
+            V visitor = visitorFactory.get();
+            shapes.forEachRemaining(shape -> shape.accept(visitor));
+            return visitor;
+        }
+    }
+}
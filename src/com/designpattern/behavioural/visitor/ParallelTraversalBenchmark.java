@@ -0,0 +1,53 @@
+package com.designpattern.behavioural.visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+Totals the area of N shapes (10M by default) with ParallelShapeTraversal on 1, 2, 4 ... cores
+and shows the speedup and that every core count gives the bit-identical total.
+ */
+public class ParallelTraversalBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int maxCores = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Random random = new Random(42);
+        List<Shape> shapes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (random.nextBoolean()) {
+                Circle circle = new Circle();
+                circle.setRadius(random.nextDouble() * 1e3);
+                shapes.add(circle);
+            } else {
+                Rectangle rectangle = new Rectangle();
+                rectangle.setLength(random.nextDouble() * 1e-3);
+                rectangle.setBreadth(random.nextDouble());
+                shapes.add(rectangle);
+            }
+        }
+
+        double baseline = 0;
+        Double expected = null;
+        for (int cores = 1; cores <= maxCores; cores = cores < maxCores ? Math.min(cores * 2, maxCores) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            ParallelShapeTraversal traversal = new ParallelShapeTraversal(pool, ParallelShapeTraversal.DEFAULT_LEAF_SIZE);
+            long best = Long.MAX_VALUE;
+            double total = 0;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                total = traversal.traverse(shapes, AreaTotal::new, AreaTotal::combine).getTotal();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            if (expected == null) {
+                expected = total;
+                baseline = best;
+            }
+            System.out.printf("%2d cores: %.1f ms, speedup %.2fx, total %s (%s)%n", cores, best / 1e6, baseline / best,
+                    total, Double.doubleToLongBits(total) == Double.doubleToLongBits(expected) ? "identical" : "DIFFERS");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.designpattern.behavioural.visitor;
+
+/*
+Dispatch over the sealed Shape hierarchy without going through Shape.accept.
+accept() is a virtual call whose receiver type changes from shape to shape; once a call site has seen more than
+two shape classes the JIT stops inlining it. Switching on the shape instead keeps the first dispatch in the
+caller, so the only virtual call left is the one on the visitor, which is usually the same class for a whole loop.
+visitByTypeId() is a tableswitch; the pattern switch in visit() goes through SwitchBootstraps.typeSwitch, whose
+type tests the JIT may or may not inline.
+ */
+final class ShapeDispatch {
+
+    private ShapeDispatch() {
+    }
+
+    // Exhaustive pattern switch: adding a shape to the permits clause makes this fail to compile until handled
+    static void visit(Shape shape, Visitor visitor) {
+        switch (shape) {
+            case Circle circle -> visitor.VisitCircle(circle);
+            case Rectangle rectangle -> visitor.VisitRectangle(rectangle);
+        }
+    }
+
+    // Same as visit, but switches on the dense typeId field, which compiles to a tableswitch jump table
+    static void visitByTypeId(Shape shape, Visitor visitor) {
+        switch (shape.typeId) {
+            case Shape.CIRCLE -> visitor.VisitCircle((Circle) shape);
+            case Shape.RECTANGLE -> visitor.VisitRectangle((Rectangle) shape);
+            default -> throw new IllegalStateException("Unknown shape type id " + shape.typeId);
+        }
+    }
+
+    static double area(Shape shape) {
+        return switch (shape) {
+            case Circle circle -> Math.PI * circle.getRadius() * circle.getRadius();
+            case Rectangle rectangle -> rectangle.getLength() * rectangle.getBreadth();
+        };
+    }
+}
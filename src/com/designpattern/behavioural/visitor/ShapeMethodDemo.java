@@ -21,13 +21,27 @@ class AreaCalculator implements Visitor {
     }
 }
 
-interface Shape {
-    void accept(Visitor visitor);
+sealed abstract class Shape permits Circle, Rectangle {
+    // dense ids in permits order, ShapeDispatch switches on them as a jump table
+    static final int CIRCLE = 0;
+    static final int RECTANGLE = 1;
+
+    final int typeId;
+
+    Shape(int typeId) {
+        this.typeId = typeId;
+    }
+
+    public abstract void accept(Visitor visitor);
 }
 
-class Circle implements Shape {
+final class Circle extends Shape {
     private double radius;
 
+    Circle() {
+        super(CIRCLE);
+    }
+
     public void setRadius(double radius) {
         this.radius = radius;
     }
@@ -42,10 +56,14 @@ class Circle implements Shape {
     }
 }
 
-class Rectangle implements Shape {
+final class Rectangle extends Shape {
     private double length;
     private double breadth;
 
+    Rectangle() {
+        super(RECTANGLE);
+    }
+
     public double getLength() {
         return length;
     }
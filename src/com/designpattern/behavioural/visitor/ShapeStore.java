@@ -0,0 +1,136 @@
+package com.designpattern.behavioural.visitor;
+
+import java.util.Arrays;
+
+/*
+Batch version of Visitor: instead of one call per shape it gets a whole column of one shape kind per call,
+and returns its result instead of printing it.
+ */
+interface ShapeBatchVisitor<R> {
+    R visitCircles(double[] radii, int count);
+    R visitRectangles(double[] lengths, double[] breadths, int count);
+    R combine(R circles, R rectangles);
+}
+
+/*
+Keeps shapes as primitive columns per kind (struct of arrays) instead of one object per shape,
+so a visitor can run a tight loop over contiguous doubles.
+ */
+class ShapeStore {
+    private double[] radii = new double[16];
+    private int circleCount;
+    private double[] lengths = new double[16];
+    private double[] breadths = new double[16];
+    private int rectangleCount;
+
+    private final Visitor appender = new Visitor() {
+        @Override
+        public void VisitCircle(Circle circle) {
+            addCircle(circle.getRadius());
+        }
+
+        @Override
+        public void VisitRectangle(Rectangle rectangle) {
+            addRectangle(rectangle.getLength(), rectangle.getBreadth());
+        }
+    };
+
+    public void add(Shape shape) {
+        shape.accept(appender);
+    }
+
+    public void addCircle(double radius) {
+        if (circleCount == radii.length)
+            radii = Arrays.copyOf(radii, circleCount * 2);
+        radii[circleCount++] = radius;
+    }
+
+    public void addRectangle(double length, double breadth) {
+        if (rectangleCount == lengths.length) {
+            lengths = Arrays.copyOf(lengths, rectangleCount * 2);
+            breadths = Arrays.copyOf(breadths, rectangleCount * 2);
+        }
+        lengths[rectangleCount] = length;
+        breadths[rectangleCount++] = breadth;
+    }
+
+    public int size() {
+        return circleCount + rectangleCount;
+    }
+
+    public <R> R accept(ShapeBatchVisitor<R> visitor) {
+        return visitor.combine(visitor.visitCircles(radii, circleCount),
+                visitor.visitRectangles(lengths, breadths, rectangleCount));
+    }
+}
+
+class BatchAreaCalculator implements ShapeBatchVisitor<Double> {
+
+    @Override
+    public Double visitCircles(double[] radii, int count) {
+        return Math.PI * sumOfProducts(radii, radii, count);
+    }
+
+    @Override
+    public Double visitRectangles(double[] lengths, double[] breadths, int count) {
+        return sumOfProducts(lengths, breadths, count);
+    }
+
+    @Override
+    public Double combine(Double circles, Double rectangles) {
+        return circles + rectangles;
+    }
+
+    // Four independent accumulators break the dependency on a single running sum, which lets the JIT keep
+    // several multiply-adds in flight (and pack them into SIMD registers where it can).
+    static double sumOfProducts(double[] a, double[] b, int count) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i <= count - 4; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < count; i++)
+            s0 += a[i] * b[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+}
+
+// Per-object counterpart of BatchAreaCalculator that keeps a total instead of printing each area.
+// The total uses Neumaier compensated summation so partial totals from parallel traversal can be merged
+// without losing the low-order bits.
+class AreaTotal implements Visitor {
+    private double total;
+    private double compensation;
+
+    @Override
+    public void VisitCircle(Circle circle) {
+        add(Math.PI * circle.getRadius() * circle.getRadius());
+    }
+
+    @Override
+    public void VisitRectangle(Rectangle rectangle) {
+        add(rectangle.getLength() * rectangle.getBreadth());
+    }
+
+    public AreaTotal combine(AreaTotal other) {
+        add(other.total);
+        add(other.compensation);
+        return this;
+    }
+
+    public double getTotal() {
+        return total + compensation;
+    }
+
+    private void add(double value) {
+        double sum = total + value;
+        if (Math.abs(total) >= Math.abs(value))
+            compensation += (total - sum) + value;
+        else
+            compensation += (value - sum) + total;
+        total = sum;
+    }
+}
@@ -0,0 +1,50 @@
+package com.designpattern.behavioural.visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+Compares the total area of N shapes (10M by default) computed with per-object accept()
+against the column-at-a-time BatchAreaCalculator over a ShapeStore.
+ */
+public class ShapeStoreBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Random random = new Random(42);
+        List<Shape> shapes = new ArrayList<>(count);
+        ShapeStore store = new ShapeStore();
+        for (int i = 0; i < count; i++) {
+            Shape shape;
+            if (random.nextBoolean()) {
+                Circle circle = new Circle();
+                circle.setRadius(random.nextDouble() * 10);
+                shape = circle;
+            } else {
+                Rectangle rectangle = new Rectangle();
+                rectangle.setLength(random.nextDouble() * 10);
+                rectangle.setBreadth(random.nextDouble() * 10);
+                shape = rectangle;
+            }
+            shapes.add(shape);
+            store.add(shape);
+        }
+
+        for (int run = 1; run <= 5; run++) {
+            long start = System.nanoTime();
+            AreaTotal visitor = new AreaTotal();
+            for (Shape shape : shapes)
+                shape.accept(visitor);
+            long perObject = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double batchTotal = store.accept(new BatchAreaCalculator());
+            long batch = System.nanoTime() - start;
+
+            System.out.printf("Run %d: accept %.1f ms (%.2f ns/shape), batch %.1f ms (%.2f ns/shape), speedup %.1fx, totals %.6e / %.6e%n",
+                    run, perObject / 1e6, (double) perObject / count, batch / 1e6, (double) batch / count,
+                    (double) perObject / batch, visitor.getTotal(), batchTotal);
+        }
+    }
+}
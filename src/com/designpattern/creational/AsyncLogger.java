@@ -0,0 +1,240 @@
+package com.designpattern.creational;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Logger that keeps callers off the I/O path. log() claims the next slot of a preallocated ring of events, copies the
+timestamp, prefix and message characters into it and publishes it; nothing is allocated once an event's buffer has
+grown to the longest message it held. A background thread takes the events in order, formats them as
+"2026-01-31T12:34:56.789Z <prefix><message>" lines into a reusable direct buffer and writes that to a
+RollingFileAppender whenever it is full or the ring runs empty.
+
+The ring is a bounded multi-producer queue: each slot's sequence tells producers and the writer thread whose turn
+it is. When the ring is full, callers wait for the writer rather than dropping lines.
+ */
+public class AsyncLogger implements AutoCloseable {
+    private static final int INITIAL_MESSAGE_CHARS = 256;
+    private static final int MAX_PREFIX_CHARS = 1024;
+    private static final int MAX_MESSAGE_CHARS = 32 * 1024;
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final Event[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong fullWaits = new AtomicLong();
+    private volatile long written;
+    private volatile boolean running = true;
+
+    private final RollingFileAppender appender;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final Thread writer;
+    private long day = Long.MIN_VALUE;
+    private final byte[] date = new byte[11];
+
+    public AsyncLogger(Path file, int ringSize, long maxFileBytes, int keepFiles) {
+        if (Integer.bitCount(ringSize) != 1)
+            throw new IllegalArgumentException("ringSize must be a power of two, got " + ringSize);
+        this.ring = new Event[ringSize];
+        for (int i = 0; i < ringSize; i++)
+            ring[i] = new Event(i);
+        this.mask = ringSize - 1;
+        this.appender = new RollingFileAppender(file, maxFileBytes, keepFiles);
+        this.writer = new Thread(this::writeEvents, "async-logger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Prefixes longer than MAX_PREFIX_CHARS and messages longer than MAX_MESSAGE_CHARS are cut off, so every event
+    // fits the writer's buffer; a null message is logged as "null", like System.out would print it
+    public void log(String prefix, CharSequence message) {
+        if (!running)
+            throw new IllegalStateException("AsyncLogger is closed");
+        // checked before claiming a slot: a slot that is claimed and never published stalls the writer
+        if (prefix == null)
+            prefix = "";
+        else if (prefix.length() > MAX_PREFIX_CHARS)
+            prefix = prefix.substring(0, MAX_PREFIX_CHARS);
+        if (message == null)
+            message = "null";
+        long sequence = claimed.getAndIncrement();
+        Event event = ring[(int) sequence & mask];
+        if (event.sequence != sequence)
+            awaitSlot(event, sequence);
+        event.timestamp = System.currentTimeMillis();
+        event.prefix = prefix;
+        int length = Math.min(message.length(), MAX_MESSAGE_CHARS);
+        if (length > event.message.length)
+            event.message = new char[Math.max(length, event.message.length * 2)];
+        if (message instanceof String text)
+            text.getChars(0, length, event.message, 0);
+        else
+            for (int i = 0; i < length; i++)
+                event.message[i] = message.charAt(i);
+        event.length = length;
+        event.sequence = sequence + 1;
+    }
+
+    private void awaitSlot(Event event, long sequence) {
+        fullWaits.incrementAndGet();
+        for (int spins = 0; event.sequence != sequence; spins++) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                if (!writer.isAlive())
+                    throw new IllegalStateException("AsyncLogger has stopped writing");
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    // Waits until every line logged before the call has been handed to the file
+    public void flush() {
+        long target = claimed.get();
+        while (written < target && writer.isAlive())
+            LockSupport.parkNanos(100_000);
+    }
+
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            appender.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not close log file", e);
+        }
+    }
+
+    // Times a caller found the ring full and had to wait for the writer
+    public long fullWaits() {
+        return fullWaits.get();
+    }
+
+    public int rolls() {
+        return appender.rolls();
+    }
+
+    private void writeEvents() {
+        long next = 0;
+        int idle = 0;
+        try {
+            while (running || written < claimed.get()) {
+                Event event = ring[(int) next & mask];
+                if (event.sequence == next + 1) {
+                    if (buffer.remaining() < event.maxBytes())
+                        drain();
+                    format(event);
+                    event.prefix = null;
+                    event.sequence = next + ring.length;
+                    next++;
+                    idle = 0;
+                    continue;
+                }
+                if (buffer.position() > 0) {
+                    drain();
+                    written = next;
+                    continue;
+                }
+                written = next;
+                // back off gradually so an idle logger costs next to nothing
+                if (++idle < 100)
+                    Thread.onSpinWait();
+                else
+                    LockSupport.parkNanos(Math.min(1_000_000, 1_000L * (idle - 99)));
+            }
+            drain();
+            written = next;
+        } catch (IOException e) {
+            running = false;
+            throw new RuntimeException("Could not write log file", e);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        appender.write(buffer);
+        buffer.clear();
+    }
+
+    private void format(Event event) {
+        long millis = event.timestamp;
+        long currentDay = Math.floorDiv(millis, 86_400_000L);
+        if (currentDay != day) {
+            // the date part only changes once a day, so it is the one place that may allocate
+            byte[] text = (LocalDate.ofEpochDay(currentDay).toString() + "T").getBytes();
+            System.arraycopy(text, 0, date, 0, Math.min(text.length, date.length));
+            day = currentDay;
+        }
+        buffer.put(date);
+        int ofDay = (int) Math.floorMod(millis, 86_400_000L);
+        twoDigits(ofDay / 3_600_000);
+        buffer.put((byte) ':');
+        twoDigits(ofDay / 60_000 % 60);
+        buffer.put((byte) ':');
+        twoDigits(ofDay / 1000 % 60);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + ofDay % 1000 / 100));
+        twoDigits(ofDay % 100);
+        buffer.put((byte) 'Z');
+        buffer.put((byte) ' ');
+        putChars(event.prefix, null, event.prefix.length());
+        putChars(null, event.message, event.length);
+        buffer.put((byte) '\n');
+    }
+
+    private void twoDigits(int value) {
+        buffer.put((byte) ('0' + value / 10));
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    // UTF-8 encodes either the string or the array
+    private void putChars(String text, char[] chars, int length) {
+        for (int i = 0; i < length; i++) {
+            char c = text != null ? text.charAt(i) : chars[i];
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text != null ? text.charAt(i + 1) : chars[i + 1])) {
+                int code = Character.toCodePoint(c, text != null ? text.charAt(++i) : chars[++i]);
+                buffer.put((byte) (0xF0 | code >> 18));
+                buffer.put((byte) (0x80 | code >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | code >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | code & 0x3F));
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static final class Event {
+        // free for the producer of sequence s when it equals s, ready for the writer when it equals s + 1
+        volatile long sequence;
+        long timestamp;
+        String prefix;
+        char[] message = new char[INITIAL_MESSAGE_CHARS];
+        int length;
+
+        Event(long sequence) {
+            this.sequence = sequence;
+        }
+
+        int maxBytes() {
+            return 32 + 3 * (prefix.length() + length);
+        }
+    }
+}
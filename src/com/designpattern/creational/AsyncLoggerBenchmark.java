@@ -0,0 +1,82 @@
+package com.designpattern.creational;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+Logs through SingletonEager in bursts of 10k lines, first synchronously to a System.out that is redirected to a
+file, then through an AsyncLogger. Between bursts the output is flushed, outside the measurement. Reports the
+caller-side latency percentiles of a log() call and the bytes it allocates.
+ */
+public class AsyncLoggerBenchmark {
+
+    private static final int BURSTS = 100;
+    private static final int BURST = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("async-logger");
+        Path consoleFile = directory.resolve("console.log");
+        Path logFile = directory.resolve("app.log");
+        String[] messages = new String[1024];
+        for (int i = 0; i < messages.length; i++)
+            messages[i] = "order " + (100_000 + i) + " shipped to warehouse " + (i % 17) + " after " + (i % 90) + " ms";
+        long[] latencies = new long[BURSTS * BURST];
+        SingletonEager logger = SingletonEager.getInstance();
+        PrintStream console = System.out;
+        try {
+            for (int run = 1; run <= 3; run++) {
+                try (PrintStream file = new PrintStream(new FileOutputStream(consoleFile.toFile()), true)) {
+                    System.setOut(file);
+                    logger.setAsyncLogger(null);
+                    String sync = measure(logger, messages, latencies, System.out::flush);
+                    System.setOut(console);
+                    try (AsyncLogger async = new AsyncLogger(logFile, 1 << 16, 64 << 20, 3)) {
+                        logger.setAsyncLogger(async);
+                        String asynchronous = measure(logger, messages, latencies, async::flush);
+                        logger.setAsyncLogger(null);
+                        System.out.printf("Run %d:%n  System.out %s%n  AsyncLogger %s, ring full %d times, rolled %d times%n",
+                                run, sync, asynchronous, async.fullWaits(), async.rolls());
+                    }
+                } finally {
+                    System.setOut(console);
+                }
+            }
+            var lines = Files.readAllLines(logFile);
+            System.out.println("Last line: " + lines.get(lines.size() - 1));
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList())
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static String measure(SingletonEager logger, String[] messages, long[] latencies, Runnable flush) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = 0;
+        long elapsed = 0;
+        for (int burst = 0; burst < BURSTS; burst++) {
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long burstStart = System.nanoTime();
+            for (int i = burst * BURST; i < (burst + 1) * BURST; i++) {
+                long start = System.nanoTime();
+                logger.log(messages[i & (messages.length - 1)]);
+                latencies[i] = System.nanoTime() - start;
+            }
+            elapsed += System.nanoTime() - burstStart;
+            allocated += threads.getCurrentThreadAllocatedBytes() - bytes;
+            flush.run();
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %d ns, p99 %d ns, p99.9 %d ns, max %.1f us; %.1f bytes per call; %.1f M calls/s in bursts",
+                sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.99)], sorted[(int) (sorted.length * 0.999)],
+                sorted[sorted.length - 1] / 1e3, (double) allocated / sorted.length, sorted.length * 1e3 / elapsed);
+    }
+}
@@ -0,0 +1,110 @@
+package com.designpattern.creational;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Writes a CSV and a JSON-lines file of synthetic profiles, one row in 1000 of them malformed, and imports each with
+ProfileImporter into a sink that only counts the profiles and sums their ages. Reports rows per second, rows per
+second per import thread and the peak heap during the import.
+
+Arguments: number of rows (default 100M) and number of import threads (default: one per core).
+ */
+public class ProfileImportBenchmark {
+
+    private static final String[] FIRST = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Vivek", "Priya",
+            "Wei", "Fatima", "Carlos", "Aiko", "Olga", "Kwame", "Sofia", "Ahmed"};
+    private static final String[] LAST = {"Smith", "Johnson", "Garcia", "Sharma", "Chen", "Khan", "Nakamura", "Ivanova",
+            "Mensah", "Rossi", "Haddad", "Schmidt", "Lopez", "Kumar", "Silva", "Weber"};
+    private static final String[] DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "proton.me", "example.org"};
+    private static final String[] STREETS = {"Main St", "Oak Ave", "Park Rd", "Maple Dr", "Cedar Ln", "Elm St"};
+
+    public static void main(String[] args) throws IOException {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path directory = Files.createTempDirectory("profile-import");
+        try {
+            for (ProfileImporter.Format format : ProfileImporter.Format.values()) {
+                Path input = directory.resolve(format == ProfileImporter.Format.CSV ? "profiles.csv" : "profiles.jsonl");
+                long start = System.nanoTime();
+                write(input, format, rows);
+                System.out.printf("%s: wrote %,d rows, %.2f GB in %.0f s%n", format, rows, Files.size(input) / 1e9,
+                        (System.nanoTime() - start) / 1e9);
+
+                LongAdder count = new LongAdder();
+                LongAdder ages = new LongAdder();
+                ProfileSink sink = profile -> {
+                    count.increment();
+                    ages.add(profile.getAge());
+                };
+                System.gc();
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                    pool.resetPeakUsage();
+                ProfileImporter.Result result = new ProfileImporter(threads, 8 << 20)
+                        .importFile(input, format, sink, directory.resolve("rejects.txt"));
+                long peakHeap = 0;
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP)
+                        peakHeap += pool.getPeakUsage().getUsed();
+                }
+                System.out.printf("%s: %s with %d threads, %.2f M rows/s per thread, peak heap %d MB, %d rejects written, "
+                                + "average age %.1f%n", format, result, threads, result.rowsPerSecond() / threads / 1e6,
+                        peakHeap >> 20, lineCount(directory.resolve("rejects.txt")),
+                        (double) ages.sum() / count.sum());
+                Files.delete(input);
+            }
+        } finally {
+            Files.deleteIfExists(directory.resolve("rejects.txt"));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static long lineCount(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.count();
+        }
+    }
+
+    private static void write(Path file, ProfileImporter.Format format, long rows) throws IOException {
+        Random random = new Random(3);
+        StringBuilder line = new StringBuilder(256);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (format == ProfileImporter.Format.CSV)
+                out.write("name,email,phone,address,age\n");
+            for (long i = 0; i < rows; i++) {
+                String first = FIRST[random.nextInt(FIRST.length)];
+                String last = LAST[random.nextInt(LAST.length)];
+                String phone = random.nextInt(3) == 0 ? null : "+1-555-" + (1_000_000 + random.nextInt(9_000_000));
+                String address = random.nextInt(10) == 0 ? null
+                        : (1 + random.nextInt(999)) + " " + STREETS[random.nextInt(STREETS.length)] + ", Springfield";
+                String age = i % 1000 == 999 ? "unknown" : Integer.toString(18 + random.nextInt(70));
+                line.setLength(0);
+                if (format == ProfileImporter.Format.CSV) {
+                    line.append(first).append(' ').append(last).append(',')
+                            .append(first).append('.').append(last).append(i).append('@').append(DOMAINS[(int) (i % DOMAINS.length)])
+                            .append(',').append(phone == null ? "" : phone)
+                            .append(',').append(address == null ? "" : "\"" + address + "\"")
+                            .append(',').append(age).append('\n');
+                } else {
+                    line.append("{\"name\":\"").append(first).append(' ').append(last)
+                            .append("\",\"email\":\"").append(first).append('.').append(last).append(i).append('@')
+                            .append(DOMAINS[(int) (i % DOMAINS.length)]).append('"');
+                    if (phone != null)
+                        line.append(",\"phone\":\"").append(phone).append('"');
+                    if (address != null)
+                        line.append(",\"address\":\"").append(address).append('"');
+                    line.append(",\"age\":").append(age).append("}\n");
+                }
+                out.append(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.designpattern.creational;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Bulk import of UserProfiles from CSV or JSON-lines files.
+
+The file is split into chunks of chunkBytes that the import threads claim one after another and read with
+positional reads, so only one chunk per thread is in memory. A line belongs to the chunk its first byte is in; a
+thread reads up to MAX_LINE_BYTES past its chunk to finish the last line. Each thread parses the bytes directly,
+validates the fields and builds profiles with its own UserProfileBuilder, and hands them to the sink as it goes.
+
+CSV files have the columns name,email,phone,address,age, optionally preceded by exactly that header line. Fields may
+be quoted, with "" for a quote inside, but may not span lines; empty phone and address fields mean none. JSON-lines
+files have one flat object per line with the same keys; other keys are ignored.
+
+Rows that cannot be parsed or fail validation are written to the reject file as the byte offset of the line, the
+reason and the line itself, separated by tabs.
+ */
+public class ProfileImporter {
+    static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final String CSV_HEADER = "name,email,phone,address,age";
+    private static final byte[][] KEYS = {bytes("name"), bytes("email"), bytes("phone"), bytes("address"), bytes("age")};
+    private static final int NAME = 0, EMAIL = 1, PHONE = 2, ADDRESS = 3, AGE = 4;
+
+    public enum Format {
+        CSV, JSON_LINES;
+
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".csv"))
+                return CSV;
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson"))
+                return JSON_LINES;
+            throw new IllegalArgumentException("Cannot tell the format of " + file + " from its extension");
+        }
+    }
+
+    public record Result(long rows, long imported, long rejected, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return rows * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, %d imported, %d rejected in %.2f s (%.2f M rows/s)", rows, imported, rejected,
+                    elapsedNanos / 1e9, rowsPerSecond() / 1e6);
+        }
+    }
+
+    private final int threads;
+    private final int chunkBytes;
+
+    public ProfileImporter(int threads, int chunkBytes) {
+        if (threads < 1 || chunkBytes < 1)
+            throw new IllegalArgumentException("Need at least one thread and one byte per chunk");
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public Result importFile(Path input, ProfileSink sink, Path rejectFile) {
+        return importFile(input, Format.of(input), sink, rejectFile);
+    }
+
+    public Result importFile(Path input, Format format, ProfileSink sink, Path rejectFile) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             Writer rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            long size = channel.size();
+            long chunks = (size + chunkBytes - 1) / chunkBytes;
+            AtomicLong nextChunk = new AtomicLong();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            LongAdder rows = new LongAdder();
+            LongAdder imported = new LongAdder();
+            LongAdder rejected = new LongAdder();
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    Worker worker = new Worker(channel, size, format, sink, rejects);
+                    try {
+                        for (long chunk = nextChunk.getAndIncrement(); chunk < chunks && failure.get() == null;
+                             chunk = nextChunk.getAndIncrement())
+                            worker.importChunk(chunk * chunkBytes, Math.min(size, (chunk + 1) * chunkBytes));
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        rows.add(worker.rows);
+                        imported.add(worker.imported);
+                        rejected.add(worker.rejectedRows);
+                    }
+                }, "profile-import-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers)
+                worker.join();
+            if (failure.get() != null)
+                throw new RuntimeException("Import of " + input + " failed", failure.get());
+            return new Result(rows.sum(), imported.sum(), rejected.sum(), System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not import " + input, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import of " + input + " was interrupted", e);
+        }
+    }
+
+    /*
+    State of one import thread, reused for all of its chunks.
+     */
+    private final class Worker {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final Format format;
+        private final ProfileSink sink;
+        private final Writer rejects;
+        private final byte[] buffer = new byte[chunkBytes + MAX_LINE_BYTES + 1];
+        private final UserProfile.UserProfileBuilder builder = new UserProfile.UserProfileBuilder(null, null);
+        private final String[] fields = new String[4];
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder rejected = new StringBuilder();
+        private int age;
+        private long rows;
+        private long imported;
+        private long rejectedRows;
+
+        Worker(FileChannel channel, long fileSize, Format format, ProfileSink sink, Writer rejects) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.format = format;
+            this.sink = sink;
+            this.rejects = rejects;
+        }
+
+        void importChunk(long chunkStart, long chunkEnd) throws IOException {
+            // one byte before the chunk tells whether a line starts right at chunkStart
+            long readFrom = chunkStart == 0 ? 0 : chunkStart - 1;
+            int length = (int) (Math.min(fileSize, chunkEnd + MAX_LINE_BYTES) - readFrom);
+            ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+            while (target.hasRemaining()) {
+                if (channel.read(target, readFrom + target.position()) < 0)
+                    throw new IOException("File shrank during the import");
+            }
+            int position = 0;
+            if (chunkStart > 0) {
+                position = indexOf((byte) '\n', 0, length) + 1;
+                if (position == 0)
+                    return;
+            }
+            while (readFrom + position < chunkEnd) {
+                int lineEnd = indexOf((byte) '\n', position, length);
+                if (lineEnd < 0) {
+                    if (readFrom + length < fileSize) {
+                        // the line runs past everything read; no other line can start in this chunk
+                        rows++;
+                        reject(readFrom + position, "line is longer than " + MAX_LINE_BYTES + " bytes", position,
+                                Math.min(length, position + 200));
+                        break;
+                    }
+                    lineEnd = length;
+                }
+                int contentEnd = lineEnd > position && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                if (contentEnd > position)
+                    importLine(readFrom + position, position, contentEnd);
+                position = lineEnd + 1;
+            }
+            if (!rejected.isEmpty()) {
+                synchronized (rejects) {
+                    rejects.append(rejected);
+                }
+                rejected.setLength(0);
+            }
+        }
+
+        private void importLine(long offset, int from, int to) {
+            if (offset == 0 && format == Format.CSV && isHeader(from, to))
+                return;
+            rows++;
+            fields[NAME] = fields[EMAIL] = fields[PHONE] = fields[ADDRESS] = null;
+            age = -1;
+            String reason = format == Format.CSV ? parseCsv(from, to) : parseJson(from, to);
+            if (reason == null)
+                reason = validate();
+            if (reason != null) {
+                reject(offset, reason, from, to);
+                return;
+            }
+            sink.accept(builder.reset(fields[NAME], fields[EMAIL]).setPhone(fields[PHONE]).setAddress(fields[ADDRESS])
+                    .setAge(age).build());
+            imported++;
+        }
+
+        private String validate() {
+            if (fields[NAME] == null || fields[NAME].isBlank())
+                return "missing name";
+            String email = fields[EMAIL];
+            if (email == null)
+                return "missing email";
+            int at = email.indexOf('@');
+            if (at <= 0 || at == email.length() - 1 || email.indexOf('@', at + 1) >= 0)
+                return "email must have the form local@domain";
+            String phone = fields[PHONE];
+            if (phone != null) {
+                for (int i = 0; i < phone.length(); i++) {
+                    char c = phone.charAt(i);
+                    if (!(c >= '0' && c <= '9') && "+-() ".indexOf(c) < 0)
+                        return "phone may only contain digits, spaces and + - ( )";
+                }
+            }
+            if (age < 0)
+                return "missing age";
+            if (age > 150)
+                return "age must be between 0 and 150";
+            return null;
+        }
+
+        private void reject(long offset, String reason, int from, int to) {
+            rejectedRows++;
+            rejected.append(offset).append('\t').append(reason).append('\t')
+                    .append(new String(buffer, from, to - from, StandardCharsets.UTF_8)).append('\n');
+        }
+
+        // Returns null when the line had five well-formed fields
+        private String parseCsv(int from, int to) {
+            int field = 0;
+            int i = from;
+            while (true) {
+                if (field == 5)
+                    return "more than 5 fields";
+                String value;
+                int valueStart = i;
+                boolean quoted = i < to && buffer[i] == '"';
+                if (quoted) {
+                    // fields without "" inside are decoded straight from the buffer
+                    text.setLength(0);
+                    boolean escaped = false;
+                    int segment = ++i;
+                    while (true) {
+                        if (i >= to)
+                            return "unterminated quoted field";
+                        if (buffer[i] == '"') {
+                            if (i + 1 < to && buffer[i + 1] == '"') {
+                                text.append(new String(buffer, segment, i + 1 - segment, StandardCharsets.UTF_8));
+                                escaped = true;
+                                i += 2;
+                                segment = i;
+                                continue;
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    if (escaped) {
+                        text.append(new String(buffer, segment, i - segment, StandardCharsets.UTF_8));
+                        value = text.isEmpty() ? null : text.toString();
+                    } else {
+                        value = i == segment ? null : new String(buffer, segment, i - segment, StandardCharsets.UTF_8);
+                    }
+                    i++;
+                    if (i < to && buffer[i] != ',')
+                        return "unexpected character after quoted field";
+                } else {
+                    while (i < to && buffer[i] != ',')
+                        i++;
+                    if (field == AGE) {
+                        age = parseAge(valueStart, i);
+                        if (age == -2)
+                            return "age is not a whole number";
+                        value = null;
+                    } else {
+                        value = i == valueStart ? null : new String(buffer, valueStart, i - valueStart, StandardCharsets.UTF_8);
+                    }
+                }
+                if (field < AGE) {
+                    fields[field] = value;
+                } else if (quoted) {
+                    age = value == null ? -1 : parseAge(value);
+                    if (age == -2)
+                        return "age is not a whole number";
+                }
+                field++;
+                if (i >= to)
+                    break;
+                i++;
+            }
+            return field == 5 ? null : "expected 5 fields, found " + field;
+        }
+
+        // Returns null when the line was a flat JSON object
+        private String parseJson(int from, int to) {
+            int i = skipSpace(from, to);
+            if (i >= to || buffer[i] != '{')
+                return "line is not a JSON object";
+            i = skipSpace(i + 1, to);
+            if (i < to && buffer[i] == '}')
+                return trailing(i + 1, to);
+            while (true) {
+                if (i >= to || buffer[i] != '"')
+                    return "expected a key";
+                int keyStart = i + 1;
+                int keyEnd = endOfString(keyStart, to);
+                if (keyEnd < 0)
+                    return "unterminated string";
+                int key = key(keyStart, keyEnd);
+                i = skipSpace(keyEnd + 1, to);
+                if (i >= to || buffer[i] != ':')
+                    return "expected ':' after a key";
+                i = skipSpace(i + 1, to);
+                if (i >= to)
+                    return "missing value";
+                byte first = buffer[i];
+                if (first == '"') {
+                    int end = endOfString(i + 1, to);
+                    if (end < 0)
+                        return "unterminated string";
+                    if (key == AGE)
+                        return "age must be a number";
+                    if (key >= 0) {
+                        String value = decodeString(i + 1, end);
+                        if (value == null)
+                            return "bad escape in string";
+                        fields[key] = value;
+                    }
+                    i = end + 1;
+                } else if (first == '-' || (first >= '0' && first <= '9')) {
+                    int end = i + 1;
+                    while (end < to && "0123456789.eE+-".indexOf(buffer[end]) >= 0)
+                        end++;
+                    if (key == AGE) {
+                        age = parseAge(i, end);
+                        if (age == -2)
+                            return "age is not a whole number";
+                    } else if (key >= 0) {
+                        return "expected a string for " + new String(KEYS[key], StandardCharsets.US_ASCII);
+                    }
+                    i = end;
+                } else if (startsWith("null", i, to)) {
+                    i += 4;
+                } else if (startsWith("true", i, to) && key < 0) {
+                    i += 4;
+                } else if (startsWith("false", i, to) && key < 0) {
+                    i += 5;
+                } else {
+                    return "unsupported value";
+                }
+                i = skipSpace(i, to);
+                if (i < to && buffer[i] == ',') {
+                    i = skipSpace(i + 1, to);
+                    continue;
+                }
+                if (i < to && buffer[i] == '}')
+                    return trailing(i + 1, to);
+                return "expected ',' or '}'";
+            }
+        }
+
+        private String trailing(int from, int to) {
+            return skipSpace(from, to) == to ? null : "unexpected text after the object";
+        }
+
+        // Index of the closing quote, or -1
+        private int endOfString(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer[i] == '\\')
+                    i++;
+                else if (buffer[i] == '"')
+                    return i;
+            }
+            return -1;
+        }
+
+        private int key(int from, int to) {
+            for (int k = 0; k < KEYS.length; k++) {
+                byte[] key = KEYS[k];
+                if (key.length == to - from && Arrays.equals(buffer, from, to, key, 0, key.length))
+                    return k;
+            }
+            if (indexOf((byte) '\\', from, to) >= 0) {
+                String decoded = decodeString(from, to);
+                for (int k = 0; k < KEYS.length; k++) {
+                    if (new String(KEYS[k], StandardCharsets.US_ASCII).equals(decoded))
+                        return k;
+                }
+            }
+            return -1;
+        }
+
+        // Returns null for an invalid escape
+        private String decodeString(int from, int to) {
+            int escape = indexOf((byte) '\\', from, to);
+            if (escape < 0)
+                return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+            text.setLength(0);
+            int segment = from;
+            for (int i = escape; i < to; i++) {
+                if (buffer[i] != '\\')
+                    continue;
+                text.append(new String(buffer, segment, i - segment, StandardCharsets.UTF_8));
+                if (++i >= to)
+                    return null;
+                switch (buffer[i]) {
+                    case '"' -> text.append('"');
+                    case '\\' -> text.append('\\');
+                    case '/' -> text.append('/');
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        if (i + 4 >= to)
+                            return null;
+                        int code = 0;
+                        for (int d = 1; d <= 4; d++) {
+                            int digit = Character.digit(buffer[i + d], 16);
+                            if (digit < 0)
+                                return null;
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        i += 4;
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+                segment = i + 1;
+            }
+            text.append(new String(buffer, segment, to - segment, StandardCharsets.UTF_8));
+            return text.toString();
+        }
+
+        // -1 for an empty field, -2 for anything but digits
+        private int parseAge(int from, int to) {
+            if (from == to)
+                return -1;
+            if (to - from > 9)
+                return -2;
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                if (buffer[i] < '0' || buffer[i] > '9')
+                    return -2;
+                value = value * 10 + buffer[i] - '0';
+            }
+            return value;
+        }
+
+        private int parseAge(String value) {
+            if (value.length() > 9 || !value.chars().allMatch(c -> c >= '0' && c <= '9'))
+                return -2;
+            return Integer.parseInt(value);
+        }
+
+        private boolean isHeader(int from, int to) {
+            return to - from == CSV_HEADER.length()
+                    && CSV_HEADER.equals(new String(buffer, from, to - from, StandardCharsets.US_ASCII));
+        }
+
+        private boolean startsWith(String literal, int from, int to) {
+            if (to - from < literal.length())
+                return false;
+            for (int i = 0; i < literal.length(); i++) {
+                if (buffer[from + i] != literal.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+
+        private int skipSpace(int from, int to) {
+            while (from < to && (buffer[from] == ' ' || buffer[from] == '\t'))
+                from++;
+            return from;
+        }
+
+        private int indexOf(byte value, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer[i] == value)
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,9 @@
+package com.designpattern.creational;
+
+/*
+Receives the profiles of a bulk import. ProfileImporter calls it from all of its threads at once, in no
+particular order.
+ */
+public interface ProfileSink {
+    void accept(UserProfile profile);
+}
@@ -0,0 +1,74 @@
+package com.designpattern.creational;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+Writes log bytes to a file through a FileChannel. When the next write would take the file past maxBytes it is
+renamed to file.1 (file.1 to file.2 and so on, keeping at most keepFiles old files) and a new file is started.
+Used by a single thread.
+ */
+class RollingFileAppender implements AutoCloseable {
+    private final Path file;
+    private final long maxBytes;
+    private final int keepFiles;
+    private FileChannel channel;
+    private long size;
+    private int rolls;
+
+    RollingFileAppender(Path file, long maxBytes, int keepFiles) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.keepFiles = keepFiles;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open log file " + file, e);
+        }
+    }
+
+    void write(ByteBuffer bytes) throws IOException {
+        if (size > 0 && size + bytes.remaining() > maxBytes)
+            roll();
+        while (bytes.hasRemaining())
+            size += channel.write(bytes);
+    }
+
+    int rolls() {
+        return rolls;
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        Files.deleteIfExists(rolled(keepFiles));
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            if (Files.exists(rolled(i)))
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (keepFiles > 0)
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        else
+            Files.delete(file);
+        rolls++;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
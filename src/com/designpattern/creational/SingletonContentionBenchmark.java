@@ -0,0 +1,129 @@
+package com.designpattern.creational;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Calls getInstance-style accessors from 1 to 64 threads for 300 ms each, in two rounds, and reports millions of
+calls per second:
+ - the previous SingletonLazy, a static synchronized getInstance() with a null check,
+ - SingletonLazy.getInstance() through its holder class,
+ - a SingletonRegistry handle,
+ - a SingletonRegistry lookup by name.
+Hand-rolled rather than JMH, which this project does not depend on; each accessor has its own loop so none of them
+goes through a shared call site.
+ */
+public class SingletonContentionBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long MEASURE_MILLIS = 300;
+
+    private static volatile boolean stop;
+
+    public static void main(String[] args) throws InterruptedException {
+        SingletonRegistry registry = new SingletonRegistry();
+        SingletonRegistry.Lazy<SingletonEager> handle = registry.register("logger", SingletonEager::getInstance, true);
+        registry.register("clock", () -> new Object());
+        Map<String, Throwable> failures = registry.warmUp();
+        System.out.println("Warm-up failures: " + failures + ", logger created: " + handle.isCreated());
+
+        String[] names = {"synchronized", "holder", "registry handle", "registry by name"};
+        for (int variant = 0; variant < names.length; variant++)
+            run(variant, 1, 500, handle, registry);
+        for (int round = 1; round <= 2; round++) {
+            System.out.printf("Round %d%n%-18s", round, "threads");
+            for (int threads : THREADS)
+                System.out.printf("%9d", threads);
+            System.out.println();
+            for (int variant = 0; variant < names.length; variant++) {
+                System.out.printf("%-18s", names[variant]);
+                for (int threads : THREADS)
+                    System.out.printf("%9.0f", run(variant, threads, MEASURE_MILLIS, handle, registry) / 1e6);
+                System.out.println();
+            }
+        }
+        System.out.println("(millions of calls per second, on " + Runtime.getRuntime().availableProcessors() + " cores)");
+    }
+
+    private static double run(int variant, int threadCount, long millis, SingletonRegistry.Lazy<SingletonEager> handle,
+                              SingletonRegistry registry) throws InterruptedException {
+        stop = false;
+        LongAdder calls = new LongAdder();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> calls.add(switch (variant) {
+                case 0 -> synchronizedLoop();
+                case 1 -> holderLoop();
+                case 2 -> handleLoop(handle);
+                default -> namedLoop(registry);
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads)
+            thread.start();
+        Thread.sleep(millis);
+        stop = true;
+        for (Thread thread : threads)
+            thread.join();
+        return calls.sum() * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static long synchronizedLoop() {
+        long calls = 0;
+        while (!stop) {
+            for (int i = 0; i < 1024; i++) {
+                if (SynchronizedLazy.getInstance() == null)
+                    calls--;
+            }
+            calls += 1024;
+        }
+        return calls;
+    }
+
+    private static long holderLoop() {
+        long calls = 0;
+        while (!stop) {
+            for (int i = 0; i < 1024; i++) {
+                if (SingletonLazy.getInstance() == null)
+                    calls--;
+            }
+            calls += 1024;
+        }
+        return calls;
+    }
+
+    private static long handleLoop(SingletonRegistry.Lazy<SingletonEager> handle) {
+        long calls = 0;
+        while (!stop) {
+            for (int i = 0; i < 1024; i++) {
+                if (handle.get() == null)
+                    calls--;
+            }
+            calls += 1024;
+        }
+        return calls;
+    }
+
+    private static long namedLoop(SingletonRegistry registry) {
+        long calls = 0;
+        while (!stop) {
+            for (int i = 0; i < 1024; i++) {
+                if (registry.get("logger") == null)
+                    calls--;
+            }
+            calls += 1024;
+        }
+        return calls;
+    }
+
+    // SingletonLazy as it was before the holder class
+    private static class SynchronizedLazy {
+        private static SynchronizedLazy instance;
+
+        static synchronized SynchronizedLazy getInstance() {
+            if (instance == null)
+                instance = new SynchronizedLazy();
+            return instance;
+        }
+    }
+}
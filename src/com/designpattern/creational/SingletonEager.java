@@ -3,6 +3,7 @@ package com.designpattern.creational;
 public class SingletonEager {
 
     private static final SingletonEager instance = new SingletonEager();
+    private volatile AsyncLogger asyncLogger;
 
     private SingletonEager() {};
 
@@ -10,7 +11,17 @@ public class SingletonEager {
         return  instance;
     }
 
+    // From now on log() hands lines to the logger instead of printing them; null goes back to System.out
+    public void setAsyncLogger(AsyncLogger asyncLogger) {
+        this.asyncLogger = asyncLogger;
+    }
+
     public void log(String message) {
+        AsyncLogger logger = asyncLogger;
+        if (logger != null) {
+            logger.log("Logging ", message);
+            return;
+        }
         System.out.println(String.format("Logging %s", message));
     }
 }
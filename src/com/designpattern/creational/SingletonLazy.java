@@ -1,19 +1,32 @@
 package com.designpattern.creational;
 
 public class SingletonLazy {
-    private static SingletonLazy instance;
+    private volatile AsyncLogger asyncLogger;
 
     private SingletonLazy() {
 
     }
 
-    public static synchronized SingletonLazy getInstance() {
-        if(instance == null)
-            instance = new SingletonLazy();
-        return instance;
+    // The JVM creates Holder, and with it the instance, on the first call; later calls read a constant without locking
+    private static class Holder {
+        private static final SingletonLazy instance = new SingletonLazy();
+    }
+
+    public static SingletonLazy getInstance() {
+        return Holder.instance;
+    }
+
+    // From now on log() hands lines to the logger instead of printing them; null goes back to System.out
+    public void setAsyncLogger(AsyncLogger asyncLogger) {
+        this.asyncLogger = asyncLogger;
     }
 
     public void log(String message) {
+        AsyncLogger logger = asyncLogger;
+        if (logger != null) {
+            logger.log("Log ", message);
+            return;
+        }
         System.out.printf("Log %s%n", message);
     }
 }
@@ -0,0 +1,156 @@
+package com.designpattern.creational;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/*
+Named, lazily created service singletons. register() returns a Lazy handle; once its instance exists, get() on the
+handle is a single acquire load with no locking, which compiles to a plain load on x86 and ARM's ldar. Looking an
+instance up by name costs a ConcurrentHashMap read on top, so hot code should keep the handle.
+
+Each instance is created exactly once: the first callers serialise on the handle, and only one of them runs the
+factory. If the factory throws (or returns null), nothing is cached and the next get() tries again; callers that
+were waiting while it failed get that same failure instead of starting another attempt at once. A factory that
+asks for its own singleton fails instead of recursing.
+
+Handles registered as eager are created by warmUp(), for example at startup, so that the first request does not
+pay for them.
+ */
+public class SingletonRegistry {
+    private final Map<String, Lazy<?>> singletons = new ConcurrentHashMap<>();
+
+    public <T> Lazy<T> register(String name, Supplier<? extends T> factory) {
+        return register(name, factory, false);
+    }
+
+    public <T> Lazy<T> register(String name, Supplier<? extends T> factory, boolean eager) {
+        Lazy<T> lazy = new Lazy<>(name, factory, eager);
+        if (singletons.putIfAbsent(name, lazy) != null)
+            throw new IllegalArgumentException("Singleton " + name + " is already registered");
+        return lazy;
+    }
+
+    public Object get(String name) {
+        return handle(name).get();
+    }
+
+    public <T> T get(String name, Class<T> type) {
+        return type.cast(handle(name).get());
+    }
+
+    public Lazy<?> handle(String name) {
+        Lazy<?> lazy = singletons.get(name);
+        if (lazy == null)
+            throw new IllegalArgumentException("No singleton named " + name);
+        return lazy;
+    }
+
+    // Creates every eager singleton, in parallel, and returns the failures by name
+    public Map<String, Throwable> warmUp() {
+        List<Lazy<?>> eager = singletons.values().stream().filter(lazy -> lazy.eager && !lazy.isCreated()).toList();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<Lazy<?>, Future<?>> running = new LinkedHashMap<>();
+            for (Lazy<?> lazy : eager)
+                running.put(lazy, executor.submit(lazy::get));
+            for (Map.Entry<Lazy<?>, Future<?>> entry : running.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    failures.put(entry.getKey().name, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.put(entry.getKey().name, e);
+                }
+            }
+        }
+        return failures;
+    }
+
+    public static final class Lazy<T> {
+        private static final VarHandle INSTANCE;
+
+        static {
+            try {
+                INSTANCE = MethodHandles.lookup().findVarHandle(Lazy.class, "instance", Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final String name;
+        private final Supplier<? extends T> factory;
+        private final boolean eager;
+        // written once with release semantics, read with acquire semantics
+        private Object instance;
+        // guarded by this, attempts is also read without the lock
+        private Thread creating;
+        private volatile int attempts;
+        private RuntimeException lastFailure;
+
+        private Lazy(String name, Supplier<? extends T> factory, boolean eager) {
+            this.name = name;
+            this.factory = factory;
+            this.eager = eager;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get() {
+            Object created = INSTANCE.getAcquire(this);
+            return created != null ? (T) created : create(attempts);
+        }
+
+        public boolean isCreated() {
+            return INSTANCE.getAcquire(this) != null;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        // Number of times the factory has been run
+        public int attempts() {
+            return attempts;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized T create(int attemptsBefore) {
+            Object created = INSTANCE.getAcquire(this);
+            if (created != null)
+                return (T) created;
+            if (creating == Thread.currentThread())
+                throw new IllegalStateException("Singleton " + name + " depends on itself");
+            // another caller's attempt failed while this one waited for the lock
+            if (lastFailure != null && attempts != attemptsBefore)
+                throw lastFailure;
+            creating = Thread.currentThread();
+            attempts++;
+            try {
+                T value = factory.get();
+                if (value == null)
+                    throw new IllegalStateException("Factory returned null");
+                INSTANCE.setRelease(this, value);
+                lastFailure = null;
+                return value;
+            } catch (Throwable e) {
+                // recorded for every failure, so callers waiting on the lock never see an older attempt's failure;
+                // an Error still reaches this caller unwrapped
+                lastFailure = new RuntimeException("Could not create singleton " + name, e);
+                if (e instanceof Error error)
+                    throw error;
+                throw lastFailure;
+            } finally {
+                creating = null;
+            }
+        }
+    }
+}
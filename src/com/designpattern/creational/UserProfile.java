@@ -28,6 +28,31 @@ public class UserProfile {
         this.age = builder.age;
     }
 
+    // Reserved for UserProfileStore.View, which reads its fields from the store's columns and overrides every getter.
+    // It leaves this object's fields unset, so it is not a way to build a profile without the Builder.
+    protected UserProfile() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
     public static class  UserProfileBuilder {
         private String name;
         private String email;
@@ -40,6 +65,16 @@ public class UserProfile {
             this.email = email;
         }
 
+        // Starts over with new required fields so one builder can build many profiles
+        public UserProfileBuilder reset(String name, String email) {
+            this.name = name;
+            this.email = email;
+            this.phone = null;
+            this.address = null;
+            this.age = 0;
+            return this;
+        }
+
         public UserProfileBuilder setPhone(String phone) {
             this.phone = phone;
             return this;
@@ -62,7 +97,7 @@ public class UserProfile {
     }
     @Override
     public String toString() {
-        return String.format("UserProfile [ name : %s, email : %s, phone : %s, address : %s, age : %d ]", name, email, phone, address, age);
+        return String.format("UserProfile [ name : %s, email : %s, phone : %s, address : %s, age : %d ]", getName(), getEmail(), getPhone(), getAddress(), getAge());
     }
 
 }
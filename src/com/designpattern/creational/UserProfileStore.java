@@ -0,0 +1,324 @@
+package com.designpattern.creational;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Column store for large numbers of UserProfiles. Instead of one object and four Strings per profile, every string
+field is a dictionary-encoded column: an int code per row pointing into a dictionary that keeps each distinct value
+once, as UTF-8 bytes in a single byte[]. Emails are split at the '@' so that the domains share one small dictionary.
+Ages are an int[] column.
+
+get() and view() return UserProfiles that read their fields from the columns. A view can be moved from row to row,
+so a scan needs a single object; its getters decode strings on each call.
+
+writeSnapshot() stores the columns in a compact little-endian file and loadSnapshot() reads them back through a
+memory-mapped file with bulk copies, without parsing single values. The store is not thread-safe while profiles
+are being added.
+ */
+public class UserProfileStore {
+    private static final int MAGIC = 0x55505331;
+    private static final int NO_VALUE = -1;
+
+    private final StringColumn names;
+    private final StringColumn emailLocalParts;
+    private final StringColumn emailDomains;
+    private final StringColumn phones;
+    private final StringColumn addresses;
+    private int[] ages;
+    private int size;
+
+    public UserProfileStore() {
+        this(new StringColumn(), new StringColumn(), new StringColumn(), new StringColumn(), new StringColumn(), new int[16], 0);
+    }
+
+    private UserProfileStore(StringColumn names, StringColumn emailLocalParts, StringColumn emailDomains, StringColumn phones,
+                             StringColumn addresses, int[] ages, int size) {
+        this.names = names;
+        this.emailLocalParts = emailLocalParts;
+        this.emailDomains = emailDomains;
+        this.phones = phones;
+        this.addresses = addresses;
+        this.ages = ages;
+        this.size = size;
+    }
+
+    // Returns the row of the added profile
+    public int add(UserProfile profile) {
+        if (size == ages.length)
+            ages = Arrays.copyOf(ages, Math.max(16, size * 2));
+        String email = profile.getEmail();
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        names.add(size, profile.getName());
+        emailLocalParts.add(size, at < 0 ? email : email.substring(0, at));
+        emailDomains.add(size, at < 0 ? null : email.substring(at + 1));
+        phones.add(size, profile.getPhone());
+        addresses.add(size, profile.getAddress());
+        ages[size] = profile.getAge();
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UserProfile get(int row) {
+        return view().moveTo(row);
+    }
+
+    public View view() {
+        return new View();
+    }
+
+    // Scans the domain codes only; the domain is looked up in the dictionary once
+    public int countByEmailDomain(String domain) {
+        int code = emailDomains.find(domain);
+        if (code == NO_VALUE)
+            return 0;
+        int[] codes = emailDomains.codes;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (codes[row] == code)
+                count++;
+        }
+        return count;
+    }
+
+    // Drops spare capacity and the lookup maps used while adding; they are rebuilt if more profiles are added
+    public void trimToSize() {
+        ages = Arrays.copyOf(ages, Math.max(size, 1));
+        for (StringColumn column : columns())
+            column.trim(size);
+    }
+
+    public String describe() {
+        return String.format("%d profiles; distinct names %d, email local parts %d, email domains %d, phones %d, addresses %d",
+                size, names.entries, emailLocalParts.entries, emailDomains.entries, phones.entries, addresses.entries);
+    }
+
+    public void writeSnapshot(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(size);
+            writeFully(channel, header.flip());
+            writeInts(channel, ages, size);
+            for (StringColumn column : columns())
+                column.write(channel, size);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write profile snapshot " + file, e);
+        }
+    }
+
+    public static UserProfileStore loadSnapshot(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            SnapshotReader reader = new SnapshotReader(channel);
+            if (reader.readInt() != MAGIC)
+                throw new IllegalArgumentException(file + " is not a profile snapshot");
+            int size = reader.readInt();
+            int[] ages = reader.readInts(size);
+            return new UserProfileStore(StringColumn.read(reader, size), StringColumn.read(reader, size),
+                    StringColumn.read(reader, size), StringColumn.read(reader, size), StringColumn.read(reader, size), ages, size);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load profile snapshot " + file, e);
+        }
+    }
+
+    private StringColumn[] columns() {
+        return new StringColumn[]{names, emailLocalParts, emailDomains, phones, addresses};
+    }
+
+    /*
+    Flyweight UserProfile over one row of the store.
+     */
+    public final class View extends UserProfile {
+        private int row;
+
+        private View() {
+        }
+
+        public View moveTo(int row) {
+            if (row < 0 || row >= size)
+                throw new IndexOutOfBoundsException("Row " + row + " is outside a store of " + size + " profiles");
+            this.row = row;
+            return this;
+        }
+
+        public int row() {
+            return row;
+        }
+
+        @Override
+        public String getName() {
+            return names.get(row);
+        }
+
+        @Override
+        public String getEmail() {
+            String local = emailLocalParts.get(row);
+            String domain = emailDomains.get(row);
+            return domain == null ? local : local + "@" + domain;
+        }
+
+        @Override
+        public String getPhone() {
+            return phones.get(row);
+        }
+
+        @Override
+        public String getAddress() {
+            return addresses.get(row);
+        }
+
+        @Override
+        public int getAge() {
+            return ages[row];
+        }
+    }
+
+    private static final class StringColumn {
+        int[] codes;
+        // value i is bytes[offsets[i]] up to bytes[offsets[i + 1]]
+        byte[] bytes;
+        int[] offsets;
+        int entries;
+        // value to code; only kept while profiles are added
+        Map<String, Integer> index;
+
+        StringColumn() {
+            this(new int[16], new byte[64], new int[17], 0);
+            index = new HashMap<>();
+        }
+
+        private StringColumn(int[] codes, byte[] bytes, int[] offsets, int entries) {
+            this.codes = codes;
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.entries = entries;
+        }
+
+        void add(int row, String value) {
+            if (row == codes.length)
+                codes = Arrays.copyOf(codes, Math.max(16, row * 2));
+            codes[row] = value == null ? NO_VALUE : intern(value);
+        }
+
+        String get(int row) {
+            int code = codes[row];
+            if (code == NO_VALUE)
+                return null;
+            return new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+        }
+
+        int find(String value) {
+            Integer code = index().get(value);
+            return code == null ? NO_VALUE : code;
+        }
+
+        private int intern(String value) {
+            Map<String, Integer> index = index();
+            Integer existing = index.get(value);
+            if (existing != null)
+                return existing;
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            int end = offsets[entries];
+            if (end + encoded.length > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, end + encoded.length));
+            System.arraycopy(encoded, 0, bytes, end, encoded.length);
+            if (entries + 2 > offsets.length)
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[entries + 1] = end + encoded.length;
+            index.put(value, entries);
+            return entries++;
+        }
+
+        private Map<String, Integer> index() {
+            if (index == null) {
+                index = new HashMap<>(entries * 2);
+                for (int code = 0; code < entries; code++)
+                    index.put(new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8), code);
+            }
+            return index;
+        }
+
+        void trim(int rows) {
+            codes = Arrays.copyOf(codes, Math.max(rows, 1));
+            bytes = Arrays.copyOf(bytes, offsets[entries]);
+            offsets = Arrays.copyOf(offsets, entries + 1);
+            index = null;
+        }
+
+        void write(FileChannel channel, int rows) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(entries).putInt(offsets[entries]);
+            writeFully(channel, header.flip());
+            writeInts(channel, offsets, entries + 1);
+            writeFully(channel, ByteBuffer.wrap(bytes, 0, offsets[entries]));
+            writeInts(channel, codes, rows);
+        }
+
+        static StringColumn read(SnapshotReader reader, int rows) throws IOException {
+            int entries = reader.readInt();
+            int length = reader.readInt();
+            int[] offsets = reader.readInts(entries + 1);
+            byte[] bytes = reader.readBytes(length);
+            return new StringColumn(reader.readInts(rows), bytes, offsets, entries);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, int[] values, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        for (int start = 0; start < count; start += buffer.capacity() / 4) {
+            int chunk = Math.min(count - start, buffer.capacity() / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, start, chunk);
+            buffer.limit(chunk * 4);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    // Maps each section of the snapshot on its own, so no single mapping has to cover the whole file
+    private static final class SnapshotReader {
+        private final FileChannel channel;
+        private long position;
+
+        SnapshotReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int readInt() throws IOException {
+            return map(4).getInt();
+        }
+
+        int[] readInts(int count) throws IOException {
+            int[] values = new int[count];
+            map(count * 4L).asIntBuffer().get(values);
+            return values;
+        }
+
+        byte[] readBytes(int count) throws IOException {
+            byte[] values = new byte[count];
+            map(count).get(values);
+            return values;
+        }
+
+        private ByteBuffer map(long bytes) throws IOException {
+            if (position + bytes > channel.size())
+                throw new IOException("Profile snapshot is truncated");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            position += bytes;
+            return buffer;
+        }
+    }
+}
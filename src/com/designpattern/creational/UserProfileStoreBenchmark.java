@@ -0,0 +1,141 @@
+package com.designpattern.creational;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+Generates 2M synthetic profiles in which names, email domains and addresses repeat the way they do in real data,
+and saves them both as a row file (every field written with writeUTF) and as a UserProfileStore snapshot.
+Then it loads each file three times, into UserProfiles built with UserProfileBuilder and into a UserProfileStore,
+and reports load time, heap retained per profile and the time to count the profiles of one email domain.
+ */
+public class UserProfileStoreBenchmark {
+
+    private static final int PROFILES = 2_000_000;
+    private static final String[] FIRST = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda",
+            "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah",
+            "Vivek", "Priya", "Wei", "Fatima", "Carlos", "Aiko", "Olga", "Kwame", "Sofia", "Ahmed", "Lena", "Mateo"};
+    private static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+            "Rodriguez", "Martinez", "Sharma", "Chen", "Khan", "Nakamura", "Ivanova", "Mensah", "Rossi", "Haddad",
+            "Schmidt", "Lopez", "Kumar", "Wang", "Ali", "Sato", "Petrov", "Owusu", "Bianchi", "Nasser", "Weber", "Silva"};
+    private static final String[] DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "hotmail.com", "icloud.com",
+            "proton.me", "example.org", "company.com", "university.edu", "mail.ru"};
+    private static final String[] STREETS = {"Main St", "Oak Ave", "Park Rd", "Maple Dr", "Cedar Ln", "Elm St",
+            "Lake View", "Hill Rd", "Station Rd", "Church St"};
+    private static final String[] CITIES = {"Springfield", "Riverton", "Lakeside", "Fairview", "Greenville", "Bristol",
+            "Madison", "Georgetown", "Salem", "Franklin", "Clinton", "Ashland", "Burlington", "Dover", "Milton", "Oxford"};
+
+    public static void main(String[] args) throws IOException {
+        Path rows = Files.createTempFile("profiles", ".rows");
+        Path snapshot = Files.createTempFile("profiles", ".snapshot");
+        try {
+            generate(rows, snapshot);
+            System.out.printf("Row file %.1f MB, snapshot %.1f MB%n", Files.size(rows) / 1e6, Files.size(snapshot) / 1e6);
+            for (int run = 1; run <= 3; run++) {
+                long heap = usedHeap();
+                long start = System.nanoTime();
+                List<UserProfile> objects = loadRows(rows);
+                double objectMillis = (System.nanoTime() - start) / 1e6;
+                double objectBytes = (double) (usedHeap() - heap) / PROFILES;
+                start = System.nanoTime();
+                int objectCount = 0;
+                for (UserProfile profile : objects) {
+                    if (profile.getEmail().endsWith("@gmail.com"))
+                        objectCount++;
+                }
+                double objectScanMillis = (System.nanoTime() - start) / 1e6;
+                objects = null;
+
+                heap = usedHeap();
+                start = System.nanoTime();
+                UserProfileStore store = UserProfileStore.loadSnapshot(snapshot);
+                double storeMillis = (System.nanoTime() - start) / 1e6;
+                double storeBytes = (double) (usedHeap() - heap) / PROFILES;
+                start = System.nanoTime();
+                int storeCount = store.countByEmailDomain("gmail.com");
+                double storeScanMillis = (System.nanoTime() - start) / 1e6;
+                if (run == 1)
+                    System.out.println(store.describe() + "; e.g. " + store.get(PROFILES / 2));
+
+                System.out.printf("Run %d: objects load in %.0f ms, %.0f bytes per profile, domain count %.1f ms; "
+                                + "store loads in %.0f ms, %.0f bytes per profile, domain count %.1f ms (%d = %d)%n",
+                        run, objectMillis, objectBytes, objectScanMillis, storeMillis, storeBytes, storeScanMillis,
+                        objectCount, storeCount);
+            }
+        } finally {
+            Files.deleteIfExists(rows);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private static void generate(Path rows, Path snapshot) throws IOException {
+        Random random = new Random(7);
+        String[] addresses = new String[PROFILES / 20];
+        for (int i = 0; i < addresses.length; i++)
+            addresses[i] = (1 + random.nextInt(999)) + " " + STREETS[random.nextInt(STREETS.length)] + ", "
+                    + CITIES[random.nextInt(CITIES.length)];
+        UserProfileStore store = new UserProfileStore();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rows), 1 << 16))) {
+            for (int i = 0; i < PROFILES; i++) {
+                String first = FIRST[random.nextInt(FIRST.length)];
+                String last = LAST[random.nextInt(LAST.length)];
+                UserProfile.UserProfileBuilder builder = new UserProfile.UserProfileBuilder(first + " " + last,
+                        first.toLowerCase() + "." + last.toLowerCase() + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)])
+                        .setAge(18 + random.nextInt(70));
+                // a third of the profiles have no phone and a tenth no address
+                if (random.nextInt(3) != 0)
+                    builder.setPhone(String.format("+1-%03d-%07d", 200 + random.nextInt(800), random.nextInt(10_000_000)));
+                if (random.nextInt(10) != 0)
+                    builder.setAddress(addresses[random.nextInt(addresses.length)]);
+                UserProfile profile = builder.build();
+                writeRow(out, profile);
+                store.add(profile);
+            }
+        }
+        store.trimToSize();
+        store.writeSnapshot(snapshot);
+    }
+
+    private static void writeRow(DataOutputStream out, UserProfile profile) throws IOException {
+        out.writeUTF(profile.getName());
+        out.writeUTF(profile.getEmail());
+        writeOptional(out, profile.getPhone());
+        writeOptional(out, profile.getAddress());
+        out.writeInt(profile.getAge());
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    private static List<UserProfile> loadRows(Path rows) throws IOException {
+        List<UserProfile> profiles = new ArrayList<>(PROFILES);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(rows), 1 << 16))) {
+            for (int i = 0; i < PROFILES; i++) {
+                UserProfile.UserProfileBuilder builder = new UserProfile.UserProfileBuilder(in.readUTF(), in.readUTF());
+                if (in.readBoolean())
+                    builder.setPhone(in.readUTF());
+                if (in.readBoolean())
+                    builder.setAddress(in.readUTF());
+                profiles.add(builder.setAge(in.readInt()).build());
+            }
+        }
+        return profiles;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
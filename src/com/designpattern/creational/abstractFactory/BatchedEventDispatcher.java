@@ -0,0 +1,90 @@
+package com.designpattern.creational.abstractFactory;
+
+import java.util.Arrays;
+
+/*
+Collects click and check events and runs them in groups, one group per widget family, through the family's own
+clickAll()/checkAll() loop. Within a family events run in the order they were posted, all clicks before all checks.
+Call flush() before the Applications that posted events are closed.
+ */
+class BatchedEventDispatcher {
+    private GUIFactory[] families = new GUIFactory[4];
+    private Button[][] buttons = new Button[4][];
+    private Checkbox[][] checkboxes = new Checkbox[4][];
+    private int[] buttonCounts = new int[4];
+    private int[] checkboxCounts = new int[4];
+    private int familyCount;
+    private int lastFamily;
+    private long dispatched;
+
+    public void click(GUIFactory factory, Button button) {
+        int family = familyIndex(factory.family());
+        if (buttonCounts[family] == buttons[family].length)
+            buttons[family] = Arrays.copyOf(buttons[family], buttons[family].length * 2);
+        buttons[family][buttonCounts[family]++] = button;
+    }
+
+    public void check(GUIFactory factory, Checkbox checkbox) {
+        int family = familyIndex(factory.family());
+        if (checkboxCounts[family] == checkboxes[family].length)
+            checkboxes[family] = Arrays.copyOf(checkboxes[family], checkboxes[family].length * 2);
+        checkboxes[family][checkboxCounts[family]++] = checkbox;
+    }
+
+    // Both events of one Application; family must already be the unwrapped factory, see GUIFactory.family()
+    void post(GUIFactory family, Button button, Checkbox checkbox) {
+        int index = familyIndex(family);
+        // each array grows from its own length, since click() and check() can fill them unevenly
+        int count = buttonCounts[index];
+        if (count == buttons[index].length)
+            buttons[index] = Arrays.copyOf(buttons[index], count * 2);
+        buttons[index][count] = button;
+        buttonCounts[index] = count + 1;
+        if (checkboxCounts[index] == checkboxes[index].length)
+            checkboxes[index] = Arrays.copyOf(checkboxes[index], checkboxes[index].length * 2);
+        checkboxes[index][checkboxCounts[index]++] = checkbox;
+    }
+
+    // Runs every queued event and returns how many there were
+    public int flush() {
+        int events = 0;
+        for (int family = 0; family < familyCount; family++) {
+            families[family].clickAll(buttons[family], buttonCounts[family]);
+            families[family].checkAll(checkboxes[family], checkboxCounts[family]);
+            events += buttonCounts[family] + checkboxCounts[family];
+            Arrays.fill(buttons[family], 0, buttonCounts[family], null);
+            Arrays.fill(checkboxes[family], 0, checkboxCounts[family], null);
+            buttonCounts[family] = 0;
+            checkboxCounts[family] = 0;
+        }
+        dispatched += events;
+        return events;
+    }
+
+    public long dispatched() {
+        return dispatched;
+    }
+
+    // There are only a handful of families, so a scan by identity beats hashing
+    private int familyIndex(GUIFactory family) {
+        if (lastFamily < familyCount && families[lastFamily] == family)
+            return lastFamily;
+        for (int i = 0; i < familyCount; i++) {
+            if (families[i] == family)
+                return lastFamily = i;
+        }
+        if (familyCount == families.length) {
+            int capacity = familyCount * 2;
+            families = Arrays.copyOf(families, capacity);
+            buttons = Arrays.copyOf(buttons, capacity);
+            checkboxes = Arrays.copyOf(checkboxes, capacity);
+            buttonCounts = Arrays.copyOf(buttonCounts, capacity);
+            checkboxCounts = Arrays.copyOf(checkboxCounts, capacity);
+        }
+        families[familyCount] = family;
+        buttons[familyCount] = new Button[256];
+        checkboxes[familyCount] = new Checkbox[256];
+        lastFamily = familyCount;
+        return familyCount++;
+    }
+}
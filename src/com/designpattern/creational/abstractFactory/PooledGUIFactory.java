@@ -0,0 +1,91 @@
+package com.designpattern.creational.abstractFactory;
+
+/*
+GUIFactory decorator that keeps up to maxIdle released widgets of each kind and hands them out again before asking
+the wrapped factory for new ones. One pool serves one widget family. Released widgets must not be used any more
+by whoever released them.
+ */
+class PooledGUIFactory implements GUIFactory {
+    private final GUIFactory family;
+    private final Button[] idleButtons;
+    private final Checkbox[] idleCheckboxes;
+    private int idleButtonCount;
+    private int idleCheckboxCount;
+    private Class<?> buttonClass;
+    private Class<?> checkboxClass;
+    private long created;
+    private long reused;
+
+    PooledGUIFactory(GUIFactory factory, int maxIdle) {
+        this.family = factory.family();
+        this.idleButtons = new Button[maxIdle];
+        this.idleCheckboxes = new Checkbox[maxIdle];
+    }
+
+    @Override
+    public synchronized Button createButton() {
+        if (idleButtonCount > 0) {
+            reused++;
+            Button button = idleButtons[--idleButtonCount];
+            idleButtons[idleButtonCount] = null;
+            return button;
+        }
+        created++;
+        Button button = family.createButton();
+        buttonClass = button.getClass();
+        return button;
+    }
+
+    @Override
+    public synchronized Checkbox createCheckbox() {
+        if (idleCheckboxCount > 0) {
+            reused++;
+            Checkbox checkbox = idleCheckboxes[--idleCheckboxCount];
+            idleCheckboxes[idleCheckboxCount] = null;
+            return checkbox;
+        }
+        created++;
+        Checkbox checkbox = family.createCheckbox();
+        checkboxClass = checkbox.getClass();
+        return checkbox;
+    }
+
+    @Override
+    public synchronized void release(Button button) {
+        if (button.getClass() != buttonClass)
+            throw new IllegalArgumentException(button.getClass().getSimpleName() + " does not belong to this pool");
+        if (idleButtonCount < idleButtons.length)
+            idleButtons[idleButtonCount++] = button;
+    }
+
+    @Override
+    public synchronized void release(Checkbox checkbox) {
+        if (checkbox.getClass() != checkboxClass)
+            throw new IllegalArgumentException(checkbox.getClass().getSimpleName() + " does not belong to this pool");
+        if (idleCheckboxCount < idleCheckboxes.length)
+            idleCheckboxes[idleCheckboxCount++] = checkbox;
+    }
+
+    @Override
+    public void clickAll(Button[] buttons, int count) {
+        family.clickAll(buttons, count);
+    }
+
+    @Override
+    public void checkAll(Checkbox[] checkboxes, int count) {
+        family.checkAll(checkboxes, count);
+    }
+
+    @Override
+    public GUIFactory family() {
+        return family;
+    }
+
+    public synchronized long created() {
+        return created;
+    }
+
+    public synchronized long reused() {
+        return reused;
+    }
+}
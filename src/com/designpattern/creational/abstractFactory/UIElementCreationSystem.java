@@ -1,5 +1,7 @@
 package com.designpattern.creational.abstractFactory;
 
+import java.util.Locale;
+
 
 interface Button {
     void click();
@@ -8,14 +10,14 @@ interface Checkbox {
     void check();
 }
 
-class MacButton implements Button {
+final class MacButton implements Button {
 
     @Override
     public void click() {
         System.out.println("Mac Button Clicked");
     }
 }
-class WindowsButton implements Button {
+final class WindowsButton implements Button {
 
     @Override
     public void click() {
@@ -23,7 +25,7 @@ class WindowsButton implements Button {
     }
 }
 
-class MacCheckbox implements Checkbox {
+final class MacCheckbox implements Checkbox {
 
     @Override
     public void check() {
@@ -31,7 +33,7 @@ class MacCheckbox implements Checkbox {
     }
 }
 
-class WindowsCheckbox implements Checkbox {
+final class WindowsCheckbox implements Checkbox {
 
     @Override
     public void check() {
@@ -41,6 +43,25 @@ class WindowsCheckbox implements Checkbox {
 interface GUIFactory {
     Button createButton();
     Checkbox createCheckbox();
+
+    /*
+    Run click()/check() on count widgets created by this factory. Every factory has its own copy of the loop,
+    so each loop only ever sees one widget class and the call inside it stays monomorphic.
+     */
+    void clickAll(Button[] buttons, int count);
+    void checkAll(Checkbox[] checkboxes, int count);
+
+    // Widgets come back here when an Application is closed; factories without a pool drop them
+    default void release(Button button) {
+    }
+
+    default void release(Checkbox checkbox) {
+    }
+
+    // The factory that actually makes the widgets, which differs from this one for decorators like PooledGUIFactory
+    default GUIFactory family() {
+        return this;
+    }
 }
 
 class WindowsFactory implements GUIFactory {
@@ -54,6 +75,18 @@ class WindowsFactory implements GUIFactory {
     public Checkbox createCheckbox() {
         return new WindowsCheckbox();
     }
+
+    @Override
+    public void clickAll(Button[] buttons, int count) {
+        for (int i = 0; i < count; i++)
+            buttons[i].click();
+    }
+
+    @Override
+    public void checkAll(Checkbox[] checkboxes, int count) {
+        for (int i = 0; i < count; i++)
+            checkboxes[i].check();
+    }
 }
 
 class MacFactory implements GUIFactory {
@@ -67,13 +100,53 @@ class MacFactory implements GUIFactory {
     public Checkbox createCheckbox() {
         return new MacCheckbox();
     }
+
+    @Override
+    public void clickAll(Button[] buttons, int count) {
+        for (int i = 0; i < count; i++)
+            buttons[i].click();
+    }
+
+    @Override
+    public void checkAll(Checkbox[] checkboxes, int count) {
+        for (int i = 0; i < count; i++)
+            checkboxes[i].check();
+    }
 }
 
-class Application {
+// Factories for the supported platforms, created once and looked up by name once at startup
+enum Platform {
+    WINDOWS(new WindowsFactory()),
+    MAC(new MacFactory());
+
+    private final GUIFactory factory;
+
+    Platform(GUIFactory factory) {
+        this.factory = factory;
+    }
+
+    GUIFactory factory() {
+        return factory;
+    }
+
+    static Platform of(String osType) {
+        try {
+            return valueOf(osType.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported OS type " + osType, e);
+        }
+    }
+}
+
+class Application implements AutoCloseable {
+    private final GUIFactory guiFactory;
+    private final GUIFactory family;
     private Button button;
     private Checkbox checkbox;
 
     public Application(GUIFactory guiFactory) {
+        this.guiFactory = guiFactory;
+        this.family = guiFactory.family();
         button = guiFactory.createButton();
         checkbox = guiFactory.createCheckbox();
     }
@@ -81,23 +154,41 @@ class Application {
         button.click();
         checkbox.check();
     }
+
+    // Queues this application's events on the dispatcher instead of running them now
+    public void post(BatchedEventDispatcher dispatcher) {
+        dispatcher.post(family, button, checkbox);
+    }
+
+    // Hands the widgets back to the factory, which may reuse them for the next Application
+    @Override
+    public void close() {
+        if (button == null)
+            return;
+        guiFactory.release(button);
+        guiFactory.release(checkbox);
+        button = null;
+        checkbox = null;
+    }
 }
 public class UIElementCreationSystem {
 
     public static void main(String[] args) {
 
-        GUIFactory factory = null;
         String osType = "Windows";
-        
-        if(osType.equalsIgnoreCase("WINDOWS")) {
-            factory = new WindowsFactory();
-        }
-        else if(osType.equalsIgnoreCase("MAC"))
-        {
-            factory = new MacFactory();
-        }
-            
+        GUIFactory factory = Platform.of(osType).factory();
+
         Application application = new Application(factory);
         application.run();
+
+        PooledGUIFactory pooled = new PooledGUIFactory(Platform.MAC.factory(), 16);
+        BatchedEventDispatcher dispatcher = new BatchedEventDispatcher();
+        for (int i = 0; i < 3; i++) {
+            try (Application macApplication = new Application(pooled)) {
+                macApplication.post(dispatcher);
+                dispatcher.flush();
+            }
+        }
+        System.out.println("Widgets created " + pooled.created() + ", reused " + pooled.reused());
     }
 }
@@ -0,0 +1,226 @@
+package com.designpattern.creational.abstractFactory;
+
+import java.lang.management.ManagementFactory;
+
+/*
+Spins up 300k Applications per round across three widget families (quiet ones that count events instead of
+printing) and compares:
+ - allocation per Application with plain factories and with PooledGUIFactory, keeping 4096 applications alive
+   at a time so their widgets really escape,
+ - event throughput of a plain FIFO event queue, whose dispatch loop sees all three widget classes of each kind,
+   and of BatchedEventDispatcher, where each family's loop sees one. Both queue the events of 1024 Applications
+   and then dispatch them.
+ */
+public class UIFactoryBenchmark {
+
+    private static final int APPLICATIONS = 300_000;
+    private static final int BATCH = 1024;
+    private static final int LIVE = 4096;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        GUIFactory[] plain = {new GtkFactory(), new QtFactory(), new WebFactory()};
+        GUIFactory[] pooled = new GUIFactory[plain.length];
+        for (int i = 0; i < plain.length; i++)
+            pooled[i] = new PooledGUIFactory(plain[i], LIVE);
+
+        for (int run = 1; run <= 12; run++) {
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            churn(plain, new Application[LIVE]);
+            double plainNanos = (double) (System.nanoTime() - start) / APPLICATIONS;
+            double plainBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / APPLICATIONS;
+
+            bytes = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            churn(pooled, new Application[LIVE]);
+            double pooledNanos = (double) (System.nanoTime() - start) / APPLICATIONS;
+            double pooledBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / APPLICATIONS;
+
+            Application[] applications = new Application[APPLICATIONS];
+            for (int i = 0; i < APPLICATIONS; i++)
+                applications[i] = new Application(plain[i % plain.length]);
+            double inOrder = dispatchRate(applications, new FifoEventQueue());
+            double batched = dispatchRate(applications, new BatchedEventDispatcher());
+
+            System.out.printf("Run %d: plain %.0f bytes and %.1f ns per Application, pooled %.1f bytes and %.1f ns; "
+                            + "events in arrival order %.0f M/s, grouped by family %.0f M/s%n",
+                    run, plainBytes, plainNanos, pooledBytes, pooledNanos, inOrder / 1e6, batched / 1e6);
+        }
+        System.out.println("Pooled widgets created " + ((PooledGUIFactory) pooled[0]).created()
+                + ", reused " + ((PooledGUIFactory) pooled[0]).reused() + " (first family)");
+    }
+
+    // Keeps LIVE applications running at a time, like a test farm; each new one replaces and closes the oldest
+    private static void churn(GUIFactory[] factories, Application[] live) {
+        for (int i = 0; i < APPLICATIONS; i++) {
+            int slot = i & (LIVE - 1);
+            if (live[slot] != null)
+                live[slot].close();
+            live[slot] = new Application(factories[i % factories.length]);
+            live[slot].run();
+        }
+    }
+
+    // Events per second when the events of each BATCH applications are queued and then dispatched
+    private static double dispatchRate(Application[] applications, BatchedEventDispatcher dispatcher) {
+        long before = QuietWidgets.events;
+        long start = System.nanoTime();
+        for (int i = 0; i < applications.length; i += BATCH) {
+            for (int j = i; j < Math.min(i + BATCH, applications.length); j++)
+                applications[j].post(dispatcher);
+            dispatcher.flush();
+        }
+        return (QuietWidgets.events - before) / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // Baseline queue: events are dispatched in arrival order through one loop shared by every family
+    static final class FifoEventQueue extends BatchedEventDispatcher {
+        private final Button[] buttons = new Button[BATCH];
+        private final Checkbox[] checkboxes = new Checkbox[BATCH];
+        private int count;
+
+        @Override
+        void post(GUIFactory family, Button button, Checkbox checkbox) {
+            buttons[count] = button;
+            checkboxes[count++] = checkbox;
+        }
+
+        @Override
+        public int flush() {
+            for (int i = 0; i < count; i++) {
+                buttons[i].click();
+                checkboxes[i].check();
+            }
+            int events = 2 * count;
+            count = 0;
+            return events;
+        }
+    }
+
+    static final class QuietWidgets {
+        static long events;
+        static long state;
+    }
+
+    // Each family mixes a different constant into the state, so none of the calls can be dropped
+    static final class GtkButton implements Button {
+        @Override
+        public void click() {
+            QuietWidgets.events++;
+            QuietWidgets.state = QuietWidgets.state * 31 + 1;
+        }
+    }
+
+    static final class GtkCheckbox implements Checkbox {
+        @Override
+        public void check() {
+            QuietWidgets.events++;
+            QuietWidgets.state = QuietWidgets.state * 31 + 2;
+        }
+    }
+
+    static final class QtButton implements Button {
+        @Override
+        public void click() {
+            QuietWidgets.events++;
+            QuietWidgets.state = QuietWidgets.state * 31 + 3;
+        }
+    }
+
+    static final class QtCheckbox implements Checkbox {
+        @Override
+        public void check() {
+            QuietWidgets.events++;
+            QuietWidgets.state = QuietWidgets.state * 31 + 4;
+        }
+    }
+
+    static final class WebButton implements Button {
+        @Override
+        public void click() {
+            QuietWidgets.events++;
+            QuietWidgets.state = QuietWidgets.state * 31 + 5;
+        }
+    }
+
+    static final class WebCheckbox implements Checkbox {
+        @Override
+        public void check() {
+            QuietWidgets.events++;
+            QuietWidgets.state = QuietWidgets.state * 31 + 6;
+        }
+    }
+
+    static final class GtkFactory implements GUIFactory {
+        @Override
+        public Button createButton() {
+            return new GtkButton();
+        }
+
+        @Override
+        public Checkbox createCheckbox() {
+            return new GtkCheckbox();
+        }
+
+        @Override
+        public void clickAll(Button[] buttons, int count) {
+            for (int i = 0; i < count; i++)
+                buttons[i].click();
+        }
+
+        @Override
+        public void checkAll(Checkbox[] checkboxes, int count) {
+            for (int i = 0; i < count; i++)
+                checkboxes[i].check();
+        }
+    }
+
+    static final class QtFactory implements GUIFactory {
+        @Override
+        public Button createButton() {
+            return new QtButton();
+        }
+
+        @Override
+        public Checkbox createCheckbox() {
+            return new QtCheckbox();
+        }
+
+        @Override
+        public void clickAll(Button[] buttons, int count) {
+            for (int i = 0; i < count; i++)
+                buttons[i].click();
+        }
+
+        @Override
+        public void checkAll(Checkbox[] checkboxes, int count) {
+            for (int i = 0; i < count; i++)
+                checkboxes[i].check();
+        }
+    }
+
+    static final class WebFactory implements GUIFactory {
+        @Override
+        public Button createButton() {
+            return new WebButton();
+        }
+
+        @Override
+        public Checkbox createCheckbox() {
+            return new WebCheckbox();
+        }
+
+        @Override
+        public void clickAll(Button[] buttons, int count) {
+            for (int i = 0; i < count; i++)
+                buttons[i].click();
+        }
+
+        @Override
+        public void checkAll(Checkbox[] checkboxes, int count) {
+            for (int i = 0; i < count; i++)
+                checkboxes[i].check();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.designpattern.creational.factory;
+
+// Providers for the channels that ship with the system
+public final class BuiltInChannels {
+    private BuiltInChannels() {
+    }
+
+    public static final class Email implements NotificationChannel {
+        private final Notification notification = new EmailNotification();
+
+        @Override
+        public String type() {
+            return "EMAIL";
+        }
+
+        @Override
+        public Notification notification() {
+            return notification;
+        }
+    }
+
+    public static final class Sms implements NotificationChannel {
+        private final Notification notification = new SMSNotification();
+
+        @Override
+        public String type() {
+            return "SMS";
+        }
+
+        @Override
+        public Notification notification() {
+            return notification;
+        }
+    }
+
+    public static final class Push implements NotificationChannel {
+        private final Notification notification = new PushNotification();
+
+        @Override
+        public String type() {
+            return "PUSH";
+        }
+
+        @Override
+        public Notification notification() {
+            return notification;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.designpattern.creational.factory;
+
+/*
+Service provider interface for notification channels. Implementations are listed in
+META-INF/services/com.designpattern.creational.factory.NotificationChannel and found by NotificationRegistry.
+Each one must be a public class with a public no-argument constructor, as ServiceLoader requires.
+ */
+public interface NotificationChannel {
+    // Type name clients ask for, matched ignoring case
+    String type();
+
+    // Notifications are stateless, so the same instance is handed out for every request
+    Notification notification();
+}
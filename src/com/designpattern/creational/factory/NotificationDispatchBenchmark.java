@@ -0,0 +1,61 @@
+package com.designpattern.creational.factory;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Drives a NotificationDispatcher with three simulated providers for 4 seconds per scenario, first within their rate
+limits and then at three times them. Reports sustained messages per second, queueing delay percentiles and how many
+messages were shed, per channel.
+
+    channel  round trip  provider limit  batch  queue
+    EMAIL    20 ms       20,000/s        100    20,000
+    SMS      50 ms        2,000/s         50     2,000
+    PUSH      5 ms       50,000/s        500    50,000
+ */
+public class NotificationDispatchBenchmark {
+
+    private static final String[] TYPES = {"EMAIL", "SMS", "PUSH"};
+    private static final double[] LIMITS = {20_000, 2_000, 50_000};
+    private static final long SECONDS = 4;
+
+    public static void main(String[] args) {
+        run("Within limits (80%)", 0.8);
+        run("Overload (300%)", 3.0);
+    }
+
+    private static void run(String label, double load) {
+        SimulatedProviderSink[] providers = {
+                new SimulatedProviderSink("email", Duration.ofMillis(20), LIMITS[0]),
+                new SimulatedProviderSink("sms", Duration.ofMillis(50), LIMITS[1]),
+                new SimulatedProviderSink("push", Duration.ofMillis(5), LIMITS[2])};
+        int[] batches = {100, 50, 500};
+        long start;
+        long[] offered = new long[TYPES.length];
+        NotificationDispatcher dispatcher = new NotificationDispatcher();
+        try (dispatcher) {
+            for (int i = 0; i < TYPES.length; i++) {
+                // stay a little under the provider's own limit so clock skew between the two buckets is not throttled
+                dispatcher.addChannel(TYPES[i], providers[i], (int) LIMITS[i], batches[i], Duration.ofMillis(10),
+                        LIMITS[i] * 0.95, 8);
+            }
+            start = System.nanoTime();
+            long tick = 1_000_000;
+            for (long elapsed = 0; elapsed < SECONDS * 1_000_000_000L; elapsed = System.nanoTime() - start) {
+                for (int i = 0; i < TYPES.length; i++) {
+                    long due = (long) (LIMITS[i] * load * elapsed / 1e9);
+                    while (offered[i] < due)
+                        dispatcher.submit(TYPES[i], TYPES[i].toLowerCase() + " message " + offered[i]++);
+                }
+                LockSupport.parkNanos(tick);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(label);
+        for (int i = 0; i < TYPES.length; i++) {
+            NotificationDispatcher.ChannelStats stats = dispatcher.stats(TYPES[i]);
+            System.out.printf("  %-5s offered %6.0f/s, delivered %6.0f/s (provider rejected %d): %s%n", TYPES[i],
+                    offered[i] / (double) SECONDS, providers[i].delivered() / seconds, providers[i].rejected(), stats);
+        }
+    }
+}
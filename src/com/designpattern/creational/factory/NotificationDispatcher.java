@@ -0,0 +1,223 @@
+package com.designpattern.creational.factory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Sends notifications asynchronously. Each channel has a bounded queue; submit() never blocks and sheds the message
+when the queue is full. Virtual-thread workers take micro-batches off the queue, holding a batch open until it has
+maxBatch messages or its oldest message has waited maxDelay. Each batch then waits for tokens from the channel's
+token bucket, so the provider's rate limit is respected, before it goes to the channel's NotificationSink.
+A batch the provider still throttles is retried after a short pause.
+
+Channels can be added while others are already sending. After close() submit() throws; every message it accepted
+before that is either delivered or counted as failed.
+ */
+class NotificationDispatcher implements AutoCloseable {
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public synchronized void addChannel(String type, NotificationSink sink, int queueCapacity, int maxBatch,
+                                        Duration maxDelay, double messagesPerSecond, int workerCount) {
+        if (!running)
+            throw new IllegalStateException("NotificationDispatcher is closed");
+        String key = type.toUpperCase(Locale.ROOT);
+        Lane lane = new Lane(sink, queueCapacity, maxBatch, maxDelay.toNanos(),
+                new TokenBucket(messagesPerSecond, Math.max(maxBatch, (long) messagesPerSecond)));
+        if (lanes.putIfAbsent(key, lane) != null)
+            throw new IllegalArgumentException("Channel " + type + " is already added");
+        for (int i = 0; i < workerCount; i++)
+            workers.add(Thread.ofVirtual().name("notify-" + key + "-" + i).start(() -> work(lane)));
+    }
+
+    // Returns false if the message was shed because the channel's queue is full
+    public boolean submit(String type, String message) {
+        Lane lane = lanes.get(type.toUpperCase(Locale.ROOT));
+        if (lane == null)
+            throw new IllegalArgumentException("Unknown channel " + type);
+        if (!running)
+            throw new IllegalStateException("NotificationDispatcher is closed");
+        Pending pending = new Pending(message, System.nanoTime());
+        if (!lane.queue.offer(pending)) {
+            lane.shed.increment();
+            return false;
+        }
+        // close() started meanwhile: take the message back unless a worker or close() already has it
+        if (!running && lane.queue.remove(pending))
+            throw new IllegalStateException("NotificationDispatcher is closed");
+        return true;
+    }
+
+    private void work(Lane lane) {
+        List<Pending> batch = new ArrayList<>(lane.maxBatch);
+        List<String> messages = new ArrayList<>(lane.maxBatch);
+        try {
+            while (running || !lane.queue.isEmpty()) {
+                Pending first = lane.queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = first.enqueuedNanos() + lane.maxDelayNanos;
+                while (batch.size() < lane.maxBatch) {
+                    lane.queue.drainTo(batch, lane.maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == lane.maxBatch || remaining <= 0 || !running)
+                        break;
+                    Pending next = lane.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                lane.bucket.acquire(batch.size());
+                long now = System.nanoTime();
+                for (Pending pending : batch) {
+                    lane.queueDelay.record(now - pending.enqueuedNanos());
+                    messages.add(pending.message());
+                }
+                deliver(lane, messages);
+                batch.clear();
+                messages.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(Lane lane, List<String> messages) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                lane.sink.sendBatch(messages);
+                lane.sent.add(messages.size());
+                lane.batches.increment();
+                return;
+            } catch (ThrottledException e) {
+                lane.throttled.increment();
+                if (attempt == 5) {
+                    lane.failed.add(messages.size());
+                    return;
+                }
+                TimeUnit.MILLISECONDS.sleep(10L << attempt);
+            } catch (RuntimeException e) {
+                lane.failed.add(messages.size());
+                return;
+            }
+        }
+    }
+
+    // Stops accepting work, waits for the workers to drain the queues and counts anything left over as failed
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<Pending> leftovers = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            lane.queue.drainTo(leftovers);
+            lane.failed.add(leftovers.size());
+            leftovers.clear();
+        }
+    }
+
+    public ChannelStats stats(String type) {
+        Lane lane = lanes.get(type.toUpperCase(Locale.ROOT));
+        return new ChannelStats(lane.sent.sum(), lane.shed.sum(), lane.failed.sum(), lane.batches.sum(),
+                lane.throttled.sum(), lane.queue.size(), lane.queueDelay.percentile(0.50), lane.queueDelay.percentile(0.99),
+                lane.queueDelay.percentile(0.999));
+    }
+
+    record ChannelStats(long sent, long shed, long failed, long batches, long throttled, int queued,
+                        long delayP50Nanos, long delayP99Nanos, long delayP999Nanos) {
+        @Override
+        public String toString() {
+            return String.format("sent %d in %d batches (avg %.1f), shed %d, failed %d, throttled %d, queued %d, "
+                            + "queueing delay p50 %.1f ms p99 %.1f ms p99.9 %.1f ms",
+                    sent, batches, batches == 0 ? 0.0 : (double) sent / batches, shed, failed, throttled, queued,
+                    delayP50Nanos / 1e6, delayP99Nanos / 1e6, delayP999Nanos / 1e6);
+        }
+    }
+
+    private record Pending(String message, long enqueuedNanos) {
+    }
+
+    private static final class Lane {
+        final NotificationSink sink;
+        final ArrayBlockingQueue<Pending> queue;
+        final int maxBatch;
+        final long maxDelayNanos;
+        final TokenBucket bucket;
+        final LongAdder sent = new LongAdder();
+        final LongAdder shed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        final DelayHistogram queueDelay = new DelayHistogram();
+
+        Lane(NotificationSink sink, int queueCapacity, int maxBatch, long maxDelayNanos, TokenBucket bucket) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.maxBatch = maxBatch;
+            this.maxDelayNanos = maxDelayNanos;
+            this.bucket = bucket;
+        }
+    }
+
+    /*
+    Log-linear histogram of nanosecond delays: 16 buckets per power of two, so percentiles are within about 6%.
+    Recording is a single atomic increment.
+     */
+    static final class DelayHistogram {
+        private static final int SUB_BITS = 4;
+        private final AtomicLongArray counts = new AtomicLongArray(64 << SUB_BITS);
+
+        void record(long nanos) {
+            counts.incrementAndGet(index(Math.max(0, nanos)));
+        }
+
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++)
+                total += counts.get(i);
+            if (total == 0)
+                return 0;
+            long target = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target)
+                    return lowerBound(i);
+            }
+            return lowerBound(counts.length() - 1);
+        }
+
+        private static int index(long value) {
+            if (value < (1 << SUB_BITS))
+                return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+        }
+
+        private static long lowerBound(int index) {
+            if (index < (1 << SUB_BITS))
+                return index;
+            int exponent = (index >>> SUB_BITS) + SUB_BITS - 1;
+            long sub = index & ((1 << SUB_BITS) - 1);
+            return (1L << exponent) | (sub << (exponent - SUB_BITS));
+        }
+    }
+}
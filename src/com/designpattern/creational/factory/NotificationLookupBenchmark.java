@@ -0,0 +1,104 @@
+package com.designpattern.creational.factory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+Looks up notifications by type, in random letter case, through an equalsIgnoreCase ladder that allocates a new
+notification per call (as NotificationFactory does) and through NotificationRegistry, for 3 to 128 channel types.
+Reports ns per lookup and bytes allocated per lookup.
+ */
+public class NotificationLookupBenchmark {
+
+    private static final int LOOKUPS = 5_000_000;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int run = 1; run <= 2; run++) {
+            System.out.println("Run " + run);
+            for (int count : new int[]{3, 8, 16, 32, 64, 128}) {
+                List<NotificationChannel> channels = channels(count);
+                String[] types = new String[count];
+                for (int i = 0; i < count; i++)
+                    types[i] = channels.get(i).type();
+                NotificationRegistry registry = new NotificationRegistry(channels);
+                String[] requests = requests(types, new Random(count));
+
+                long bytes = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long ladderChecksum = 0;
+                for (int i = 0; i < LOOKUPS; i++)
+                    ladderChecksum += ladder(types, requests[i & (requests.length - 1)]).hashCode() & 1;
+                double ladderNanos = (double) (System.nanoTime() - start) / LOOKUPS;
+                double ladderBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / LOOKUPS;
+
+                bytes = threads.getCurrentThreadAllocatedBytes();
+                start = System.nanoTime();
+                long registryChecksum = 0;
+                for (int i = 0; i < LOOKUPS; i++)
+                    registryChecksum += registry.createNotification(requests[i & (requests.length - 1)]) != null ? 1 : 0;
+                double registryNanos = (double) (System.nanoTime() - start) / LOOKUPS;
+                double registryBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / LOOKUPS;
+
+                System.out.printf("  %3d types: ladder %6.1f ns, %5.1f bytes per lookup; registry %5.1f ns, %4.1f bytes per lookup (%d)%n",
+                        count, ladderNanos, ladderBytes, registryNanos, registryBytes, ladderChecksum + registryChecksum);
+            }
+        }
+    }
+
+    // The three built-in channels followed by synthetic ones
+    private static List<NotificationChannel> channels(int count) {
+        List<NotificationChannel> channels = new ArrayList<>(List.of(new BuiltInChannels.Email(), new BuiltInChannels.Sms(),
+                new BuiltInChannels.Push()));
+        for (int i = channels.size(); i < count; i++) {
+            String type = "WEBHOOK_" + i;
+            Notification notification = message -> System.out.println("Sending " + type + ": " + message);
+            channels.add(new NotificationChannel() {
+                @Override
+                public String type() {
+                    return type;
+                }
+
+                @Override
+                public Notification notification() {
+                    return notification;
+                }
+            });
+        }
+        return channels;
+    }
+
+    private static String[] requests(String[] types, Random random) {
+        String[] requests = new String[1024];
+        for (int i = 0; i < requests.length; i++) {
+            String type = types[random.nextInt(types.length)];
+            requests[i] = random.nextBoolean() ? type.toLowerCase(Locale.ROOT) : type;
+        }
+        return requests;
+    }
+
+    // NotificationFactory's ladder extended to any number of types
+    private static Notification ladder(String[] types, String requested) {
+        if (requested.equalsIgnoreCase("EMAIL"))
+            return new EmailNotification();
+        if (requested.equalsIgnoreCase("SMS"))
+            return new SMSNotification();
+        if (requested.equalsIgnoreCase("PUSH"))
+            return new PushNotification();
+        for (int i = 3; i < types.length; i++) {
+            if (requested.equalsIgnoreCase(types[i]))
+                return new WebhookNotification(types[i]);
+        }
+        return null;
+    }
+
+    private record WebhookNotification(String type) implements Notification {
+        @Override
+        public void send(String message) {
+            System.out.println("Sending " + type + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.designpattern.creational.factory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/*
+Registry-based replacement for NotificationFactory. Channels are registered once, typically through ServiceLoader at
+startup, and stored in an open table indexed by a perfect hash of the case-folded type: a seed is searched for that
+gives every registered type its own slot. A lookup hashes the requested type while folding its case, checks the one
+slot it lands in and returns the channel's shared Notification, without allocating anything.
+ */
+class NotificationRegistry {
+    private static final int SEEDS_PER_SIZE = 4096;
+
+    private final String[] types;
+    private final Notification[] notifications;
+    private final int seed;
+    private final int mask;
+
+    NotificationRegistry(Iterable<? extends NotificationChannel> channels) {
+        List<NotificationChannel> registered = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (NotificationChannel channel : channels) {
+            if (!seen.add(fold(channel.type())))
+                throw new IllegalStateException("Notification type " + channel.type() + " is registered twice");
+            registered.add(channel);
+        }
+        int size = Integer.highestOneBit(Math.max(1, registered.size()) * 2 - 1);
+        while (true) {
+            int found = findSeed(registered, size);
+            if (found != 0) {
+                seed = found;
+                break;
+            }
+            size *= 2;
+        }
+        mask = size - 1;
+        types = new String[size];
+        notifications = new Notification[size];
+        for (NotificationChannel channel : registered) {
+            int slot = hash(channel.type(), seed) & mask;
+            types[slot] = channel.type();
+            notifications[slot] = channel.notification();
+        }
+    }
+
+    // Channels installed on the class path
+    static NotificationRegistry loadInstalled() {
+        return new NotificationRegistry(ServiceLoader.load(NotificationChannel.class));
+    }
+
+    // Same contract as NotificationFactory.createNotification: null for a null or unknown type
+    public Notification createNotification(String notificationType) {
+        if (notificationType == null)
+            return null;
+        int slot = hash(notificationType, seed) & mask;
+        String type = types[slot];
+        return type != null && type.equalsIgnoreCase(notificationType) ? notifications[slot] : null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (String type : types) {
+            if (type != null)
+                size++;
+        }
+        return size;
+    }
+
+    private static int findSeed(List<NotificationChannel> channels, int size) {
+        boolean[] used = new boolean[size];
+        for (int seed = 1; seed <= SEEDS_PER_SIZE; seed++) {
+            Arrays.fill(used, false);
+            boolean perfect = true;
+            for (NotificationChannel channel : channels) {
+                int slot = hash(channel.type(), seed) & (size - 1);
+                if (used[slot]) {
+                    perfect = false;
+                    break;
+                }
+                used[slot] = true;
+            }
+            if (perfect)
+                return seed;
+        }
+        return 0;
+    }
+
+    // Strings that are equalsIgnoreCase hash the same, because every char is folded the way String folds it
+    private static int hash(String type, int seed) {
+        int h = seed;
+        for (int i = 0; i < type.length(); i++) {
+            char c = type.charAt(i);
+            if (c >= 'A' && c <= 'Z')
+                c += 'a' - 'A';
+            else if (c >= 0x80)
+                c = Character.toLowerCase(Character.toUpperCase(c));
+            h = (h ^ c) * 0x01000193;
+        }
+        h ^= h >>> 15;
+        h *= 0x2c1b3c6d;
+        return h ^ h >>> 12;
+    }
+
+    private static String fold(String type) {
+        StringBuilder folded = new StringBuilder(type.length());
+        for (int i = 0; i < type.length(); i++)
+            folded.append(Character.toLowerCase(Character.toUpperCase(type.charAt(i))));
+        return folded.toString();
+    }
+}
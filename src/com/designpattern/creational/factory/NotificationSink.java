@@ -0,0 +1,25 @@
+package com.designpattern.creational.factory;
+
+import java.util.List;
+
+// Where a NotificationDispatcher delivers a batch of messages for one channel, e.g. a provider's bulk API
+interface NotificationSink {
+    void sendBatch(List<String> messages);
+
+    // For channels without a bulk API: sends the batch one message at a time
+    static NotificationSink of(Notification notification) {
+        return messages -> {
+            for (String message : messages)
+                notification.send(message);
+        };
+    }
+}
+
+// Thrown by a provider that rejects a request for exceeding its rate limit, like an HTTP 429
+class ThrottledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ThrottledException(String message) {
+        super(message);
+    }
+}
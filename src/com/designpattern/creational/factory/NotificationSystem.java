@@ -58,5 +58,10 @@ public class NotificationSystem {
           Notification push = factory.createNotification("PUSH");
           push.send("New Message");
 
+          NotificationRegistry registry = NotificationRegistry.loadInstalled();
+          Notification shared = registry.createNotification("email");
+          shared.send("Found through ServiceLoader, one of " + registry.size() + " installed channels");
+          System.out.println("Same instance on every lookup: " + (shared == registry.createNotification("Email")));
+
     }
 }
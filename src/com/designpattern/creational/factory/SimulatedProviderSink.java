@@ -0,0 +1,46 @@
+package com.designpattern.creational.factory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Local stand-in for an email, SMS or push provider. Every batch takes one round trip, and the provider enforces its own
+limit of messages per second (with one second of burst), throwing ThrottledException for a batch over the limit.
+ */
+class SimulatedProviderSink implements NotificationSink {
+    private final String name;
+    private final Duration roundTrip;
+    private final TokenBucket limit;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    SimulatedProviderSink(String name, Duration roundTrip, double messagesPerSecond) {
+        this.name = name;
+        this.roundTrip = roundTrip;
+        this.limit = new TokenBucket(messagesPerSecond, (long) messagesPerSecond);
+    }
+
+    @Override
+    public void sendBatch(List<String> messages) {
+        try {
+            Thread.sleep(roundTrip);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while sending to " + name, e);
+        }
+        if (!limit.tryAcquire(messages.size())) {
+            rejected.add(messages.size());
+            throw new ThrottledException(name + " is over its limit of " + (long) limit.ratePerSecond() + " messages per second");
+        }
+        delivered.add(messages.size());
+    }
+
+    long delivered() {
+        return delivered.sum();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+}
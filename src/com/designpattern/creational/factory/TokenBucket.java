@@ -0,0 +1,52 @@
+package com.designpattern.creational.factory;
+
+import java.util.concurrent.TimeUnit;
+
+// Rate limiter that refills ratePerSecond tokens per second, holding at most burst of them
+class TokenBucket {
+    private final double ratePerSecond;
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double ratePerSecond, long burst) {
+        if (ratePerSecond <= 0 || burst < 1)
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        this.ratePerSecond = ratePerSecond;
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    synchronized boolean tryAcquire(int count) {
+        refill();
+        if (tokens < count)
+            return false;
+        tokens -= count;
+        return true;
+    }
+
+    // Takes count tokens, borrowing against future refills if needed, and blocks until they are covered
+    void acquire(int count) throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            refill();
+            tokens -= count;
+            wait = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        }
+        if (wait > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    double ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
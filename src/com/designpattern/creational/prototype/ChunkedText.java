@@ -0,0 +1,165 @@
+package com.designpattern.creational.prototype;
+
+import java.util.Arrays;
+
+/*
+Text stored as a list of immutable String chunks of about CHUNK_CHARS characters. copy() is O(1): the copy and the
+original share the chunk list until one of them is edited. An edit then copies the list of chunk references (not
+the text) and rebuilds only the chunks the edited range touches, so a copy costs the memory of what it changed.
+ */
+final class ChunkedText {
+    static final int CHUNK_CHARS = 16 * 1024;
+
+    private String[] chunks;
+    // ends[i] is the offset just past chunk i
+    private int[] ends;
+    private int count;
+    // set on both sides by copy(); the next edit copies the chunk list first
+    private boolean shared;
+
+    private ChunkedText(String[] chunks, int[] ends, int count) {
+        this.chunks = chunks;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    static ChunkedText of(String text) {
+        ChunkedText chunked = new ChunkedText(new String[0], new int[0], 0);
+        chunked.replace(0, 0, text);
+        return chunked;
+    }
+
+    ChunkedText copy() {
+        // prototypes are copied from many threads, so only write the flag when it changes
+        if (!shared)
+            shared = true;
+        ChunkedText copy = new ChunkedText(chunks, ends, count);
+        copy.shared = true;
+        return copy;
+    }
+
+    // Makes this text share the other's chunks again without allocating; the other has to be marked shared already
+    void resetFrom(ChunkedText other) {
+        chunks = other.chunks;
+        ends = other.ends;
+        count = other.count;
+        shared = true;
+    }
+
+    int length() {
+        return count == 0 ? 0 : ends[count - 1];
+    }
+
+    char charAt(int index) {
+        if (index < 0 || index >= length())
+            throw new IndexOutOfBoundsException("Index " + index + " is outside text of length " + length());
+        int chunk = chunkAt(index);
+        return chunks[chunk].charAt(index - start(chunk));
+    }
+
+    String substring(int from, int to) {
+        checkRange(from, to);
+        StringBuilder builder = new StringBuilder(to - from);
+        for (int chunk = from == to ? count : chunkAt(from); chunk < count && start(chunk) < to; chunk++) {
+            int start = start(chunk);
+            builder.append(chunks[chunk], Math.max(from, start) - start, Math.min(to, ends[chunk]) - start);
+        }
+        return builder.toString();
+    }
+
+    void insert(int offset, String text) {
+        replace(offset, offset, text);
+    }
+
+    void append(String text) {
+        replace(length(), length(), text);
+    }
+
+    // Replaces the characters in [from, to) with text
+    void replace(int from, int to, String text) {
+        checkRange(from, to);
+        if (from == to && text.isEmpty())
+            return;
+        // chunks first..last (exclusive) are rebuilt; an insert at a chunk boundary extends the chunk before it
+        int first = count == 0 ? 0 : chunkAt(from == 0 ? 0 : from - 1);
+        int last = count == 0 ? 0 : Math.max(first + 1, to == from ? first + 1 : chunkAt(to - 1) + 1);
+        int firstStart = start(first);
+        String prefix = first < count ? chunks[first].substring(0, from - firstStart) : "";
+        String suffix = last > first ? chunks[last - 1].substring(to - start(last - 1)) : "";
+        String middle = prefix.isEmpty() && suffix.isEmpty() ? text : prefix + text + suffix;
+
+        // an edited chunk keeps its size until it grows past two chunks, so small edits rebuild a single chunk
+        int pieces = middle.isEmpty() ? 0 : middle.length() <= 2 * CHUNK_CHARS ? 1
+                : (middle.length() + CHUNK_CHARS - 1) / CHUNK_CHARS;
+        int newCount = count - (last - first) + pieces;
+        String[] newChunks = chunks;
+        int[] newEnds = ends;
+        if (shared || newCount > chunks.length) {
+            int capacity = newCount > chunks.length ? Math.max(newCount, chunks.length + (chunks.length >> 1)) : chunks.length;
+            newChunks = Arrays.copyOf(chunks, capacity);
+            newEnds = Arrays.copyOf(ends, capacity);
+        }
+        System.arraycopy(chunks, last, newChunks, first + pieces, count - last);
+        // the chunks after the edit move by shift places and their ends by delta; copy in the direction that is safe in place
+        int shift = pieces - (last - first);
+        int delta = text.length() - (to - from);
+        if (shift <= 0) {
+            for (int i = first + pieces; i < newCount; i++)
+                newEnds[i] = ends[i - shift] + delta;
+        } else {
+            for (int i = newCount - 1; i >= first + pieces; i--)
+                newEnds[i] = ends[i - shift] + delta;
+        }
+        int offset = firstStart;
+        for (int i = 0; i < pieces; i++) {
+            int pieceStart = (int) ((long) middle.length() * i / pieces);
+            int pieceEnd = (int) ((long) middle.length() * (i + 1) / pieces);
+            newChunks[first + i] = pieces == 1 ? middle : middle.substring(pieceStart, pieceEnd);
+            offset += pieceEnd - pieceStart;
+            newEnds[first + i] = offset;
+        }
+        if (count > newCount)
+            Arrays.fill(newChunks, newCount, count, null);
+        chunks = newChunks;
+        ends = newEnds;
+        count = newCount;
+        shared = false;
+    }
+
+    // Number of chunks that are the very same objects in both texts
+    int sharedChunks(ChunkedText other) {
+        int same = 0;
+        for (int i = 0, j = 0; i < count && j < other.count; ) {
+            if (ends[i] == other.ends[j] && chunks[i] == other.chunks[j])
+                same++;
+            if (ends[i] <= other.ends[j])
+                i++;
+            else
+                j++;
+        }
+        return same;
+    }
+
+    int chunkCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, length());
+    }
+
+    private int chunkAt(int index) {
+        int found = Arrays.binarySearch(ends, 0, count, index);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private int start(int chunk) {
+        return chunk == 0 ? 0 : ends[chunk - 1];
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to < from || to > length())
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is outside text of length " + length());
+    }
+}
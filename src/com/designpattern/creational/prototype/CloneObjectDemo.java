@@ -1,30 +1,85 @@
 package com.designpattern.creational.prototype;
 
+/*
+clone() is O(1) however large the content is: the copy shares the content chunks and the style table with the
+original and each side copies only the parts it edits.
+ */
 class Document implements Cloneable {
 
     private String title;
-    private String content;
+    private ChunkedText content;
     private String formatting;
+    private StyleTable styles;
 
     public Document(String title, String content, String formatting) {
         this.title = title;
-        this.content = content;
+        this.content = ChunkedText.of(content);
         this.formatting = formatting;
+        this.styles = new StyleTable();
     }
 
     @Override
     public Document clone() {
         try {
-            return (Document) super.clone();
+            Document copy = (Document) super.clone();
+            copy.content = content.copy();
+            copy.styles = styles.copy();
+            return copy;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException("Clone Not Supported", e);
         }
     }
 
+    // Turns this document back into a copy of the prototype by copying its fields; the prototype must have been cloned before
+    void resetFrom(Document prototype) {
+        title = prototype.title;
+        formatting = prototype.formatting;
+        content.resetFrom(prototype.content);
+        styles.resetFrom(prototype.styles);
+    }
+
     public void setTitle(String title) {
         this.title = title;
     }
 
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content.toString();
+    }
+
+    public int contentLength() {
+        return content.length();
+    }
+
+    // Replaces the content characters in [from, to) with text
+    public void editContent(int from, int to, String text) {
+        content.replace(from, to, text);
+    }
+
+    public void appendContent(String text) {
+        content.append(text);
+    }
+
+    public String getStyle(String name) {
+        return styles.get(name);
+    }
+
+    public void setStyle(String name, String value) {
+        styles.set(name, value);
+    }
+
+    // Content chunks this document still shares with the other one
+    int sharedChunks(Document other) {
+        return content.sharedChunks(other.content);
+    }
+
+    int chunkCount() {
+        return content.chunkCount();
+    }
+
     public void display() {
         System.out.println(String.format("Title: %s, Content: %s, Formatting: %s", title, content, formatting));
     }
@@ -37,5 +92,35 @@ public class CloneObjectDemo {
         d2.setTitle("Report Summary");
         d1.display();
         d2.display();
+
+        PrototypeRegistry registry = new PrototypeRegistry();
+        Document template = new Document("Annual Report", "Chapter. ".repeat(200_000), "Plain");
+        template.setStyle("heading", "Bold 18pt");
+        registry.register("annual", template);
+        Document draft = registry.create("annual");
+        draft.editContent(0, 8, "Preface.");
+        draft.setStyle("heading", "Italic 18pt");
+        Document pristine = registry.create("annual");
+        System.out.println(String.format("Draft starts with \"%s\" and has heading %s; a fresh copy starts with \"%s\" and has heading %s",
+                draft.getContent().substring(0, 8), draft.getStyle("heading"), pristine.getContent().substring(0, 8),
+                pristine.getStyle("heading")));
+        System.out.println(String.format("Draft shares %d of its %d content chunks with a fresh copy",
+                draft.sharedChunks(pristine), draft.chunkCount()));
+
+        DocumentPool pool = new DocumentPool(template, 16, 1);
+        Document letter;
+        try (DocumentPool.Lease lease = pool.acquire()) {
+            letter = lease.document();
+            letter.setTitle("Letter to shareholders");
+        }
+        DocumentPool.Lease reused = pool.acquire();
+        System.out.println(String.format("Pooled document came back as \"%s\" (same object: %b)",
+                reused.document().getTitle(), reused.document() == letter));
+        // never released, so the pool reports it once it has been collected
+        letter = null;
+        reused = null;
+        for (int i = 0; i < 10 && pool.leaks() == 0; i++)
+            System.gc();
+        System.out.println(String.format("Pool created %d documents and found %d leaks", pool.created(), pool.leaks()));
     }
 }
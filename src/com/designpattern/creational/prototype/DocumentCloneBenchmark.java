@@ -0,0 +1,80 @@
+package com.designpattern.creational.prototype;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/*
+Clones a 10 MB template 10k times through PrototypeRegistry and reports ns per clone, bytes allocated per clone
+and heap retained per clone, first for untouched clones and then for clones that each edit 64 characters and a
+style. For comparison it makes a few deep copies, i.e. documents built from a full copy of the template's content.
+ */
+public class DocumentCloneBenchmark {
+
+    private static final int TEMPLATE_CHARS = 10 * 1024 * 1024;
+    private static final int CLONES = 10_000;
+    private static final int DEEP_COPIES = 20;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Random random = new Random(42);
+        char[] text = new char[TEMPLATE_CHARS];
+        for (int i = 0; i < text.length; i++)
+            text[i] = (char) ('a' + random.nextInt(26));
+        Document template = new Document("Template", new String(text), "Plain");
+        template.setStyle("body", "Serif 11pt");
+        PrototypeRegistry registry = new PrototypeRegistry();
+        registry.register("template", template);
+
+        for (int run = 1; run <= 3; run++) {
+            Document[] clones = new Document[CLONES];
+            long heap = usedHeap();
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < CLONES; i++)
+                clones[i] = registry.create("template");
+            double cloneNanos = (double) (System.nanoTime() - start) / CLONES;
+            double cloneBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / CLONES;
+            double cloneRetained = (double) (usedHeap() - heap) / CLONES;
+            long checksum = clones[CLONES - 1].contentLength();
+            clones = new Document[CLONES];
+
+            heap = usedHeap();
+            bytes = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < CLONES; i++) {
+                Document clone = registry.create("template");
+                int offset = random.nextInt(TEMPLATE_CHARS - 64);
+                clone.editContent(offset, offset + 64, "Edited by clone " + i);
+                clone.setStyle("body", "Sans 12pt");
+                clones[i] = clone;
+            }
+            double editNanos = (double) (System.nanoTime() - start) / CLONES;
+            double editBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / CLONES;
+            double editRetained = (double) (usedHeap() - heap) / CLONES;
+            checksum += clones[CLONES - 1].contentLength();
+            clones = null;
+
+            Document[] deep = new Document[DEEP_COPIES];
+            heap = usedHeap();
+            bytes = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < DEEP_COPIES; i++)
+                deep[i] = new Document(template.getTitle(), template.getContent(), "Plain");
+            double deepNanos = (double) (System.nanoTime() - start) / DEEP_COPIES;
+            double deepBytes = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / DEEP_COPIES;
+            double deepRetained = (double) (usedHeap() - heap) / DEEP_COPIES;
+            checksum += deep[DEEP_COPIES - 1].contentLength();
+
+            System.out.printf("Run %d: clone %.0f ns, %.0f bytes allocated, %.0f bytes retained; "
+                            + "clone and edit %.0f ns, %.0f bytes allocated, %.0f bytes retained; "
+                            + "deep copy %.2f ms, %.1f MB allocated, %.1f MB retained (%d)%n",
+                    run, cloneNanos, cloneBytes, cloneRetained, editNanos, editBytes, editRetained,
+                    deepNanos / 1e6, deepBytes / 1e6, deepRetained / 1e6, checksum);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,177 @@
+package com.designpattern.creational.prototype;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Pool of Documents that all start out as copies of one prototype. acquire() hands out a Lease on a document, and
+closing the lease (or release()) resets the document from the prototype by copying its fields, so after warm-up
+acquire() neither clones nor allocates. Each pooled document keeps its lease for life; the lease holds the pool's
+bookkeeping, so Document itself knows nothing about pooling.
+
+Each thread first uses its own few idle leases, with plain reads and writes. Beyond those, idle leases are
+kept in stripes of slots chosen by thread id, taken and returned with one compare-and-set. The stripes hold at most
+capacity leases in total, the thread-local slots LOCAL_SLOTS per thread; a lease released when both are full
+is dropped along with its document.
+
+One acquire in leakSampleInterval is tracked with a weak reference to the lease and the stack trace of the acquire.
+When such a lease is garbage collected without having been released, the leak is counted and reported on System.err by the
+next sampled acquire or call to leaks().
+ */
+class DocumentPool {
+    private static final int LOCAL_SLOTS = 4;
+
+    private final Document prototype;
+    private final AtomicReferenceArray<Lease>[] stripes;
+    private final int leakSampleInterval;
+    private final ThreadLocal<Lease[]> local = ThreadLocal.withInitial(() -> new Lease[LOCAL_SLOTS]);
+
+    private final ReferenceQueue<Lease> collected = new ReferenceQueue<>();
+    private final Set<LeakRecord> tracked = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    DocumentPool(Document prototype, int capacity, int leakSampleInterval) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        this.prototype = prototype.clone();
+        this.leakSampleInterval = leakSampleInterval;
+        int stripeCount = Math.min(Integer.highestOneBit(capacity),
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2);
+        this.stripes = new AtomicReferenceArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new AtomicReferenceArray<>(capacity / stripeCount);
+    }
+
+    public Lease acquire() {
+        Lease lease = null;
+        Lease[] local = this.local.get();
+        for (int i = local.length - 1; i >= 0 && lease == null; i--) {
+            if (local[i] != null) {
+                lease = local[i];
+                local[i] = null;
+            }
+        }
+        if (lease == null) {
+            AtomicReferenceArray<Lease> stripe = stripe();
+            for (int i = 0; i < stripe.length() && lease == null; i++) {
+                Lease idle = stripe.get(i);
+                if (idle != null && stripe.compareAndSet(i, idle, null))
+                    lease = idle;
+            }
+        }
+        if (lease == null) {
+            created.increment();
+            lease = new Lease(this, prototype.clone());
+        }
+        lease.idle = false;
+        if (leakSampleInterval > 0 && ThreadLocalRandom.current().nextInt(leakSampleInterval) == 0)
+            track(lease);
+        return lease;
+    }
+
+    // Neither the lease nor its document may be used after it is released
+    public void release(Lease lease) {
+        if (lease.pool != this)
+            throw new IllegalArgumentException("Document " + lease.document.getTitle() + " does not belong to this pool");
+        if (lease.idle)
+            throw new IllegalStateException("Document " + lease.document.getTitle() + " was released twice");
+        lease.idle = true;
+        LeakRecord leak = lease.leak;
+        if (leak != null) {
+            lease.leak = null;
+            leak.clear();
+            tracked.remove(leak);
+        }
+        // reset now rather than on acquire, so the pool does not keep the document's edits alive
+        lease.document.resetFrom(prototype);
+        Lease[] local = this.local.get();
+        for (int i = 0; i < local.length; i++) {
+            if (local[i] == null) {
+                local[i] = lease;
+                return;
+            }
+        }
+        AtomicReferenceArray<Lease> stripe = stripe();
+        for (int i = 0; i < stripe.length(); i++) {
+            if (stripe.get(i) == null && stripe.compareAndSet(i, null, lease))
+                return;
+        }
+        dropped.increment();
+    }
+
+    private AtomicReferenceArray<Lease> stripe() {
+        return stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+    }
+
+    private void track(Lease lease) {
+        reportLeaks();
+        LeakRecord leak = new LeakRecord(lease, collected);
+        tracked.add(leak);
+        lease.leak = leak;
+    }
+
+    private void reportLeaks() {
+        LeakRecord record;
+        while ((record = (LeakRecord) collected.poll()) != null) {
+            if (tracked.remove(record)) {
+                leaks.increment();
+                System.err.println("LEAK: a pooled document was garbage collected without being released");
+                record.acquiredAt.printStackTrace();
+            }
+        }
+    }
+
+    public long created() {
+        return created.sum();
+    }
+
+    // Released documents the pool had no room for
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // Leaks found so far; a leak is only noticed once the GC has cleared the document
+    public long leaks() {
+        reportLeaks();
+        return leaks.sum();
+    }
+
+    // A pooled document for as long as it is acquired; close() gives it back
+    static final class Lease implements AutoCloseable {
+        private final DocumentPool pool;
+        private final Document document;
+        private boolean idle;
+        private LeakRecord leak;
+
+        private Lease(DocumentPool pool, Document document) {
+            this.pool = pool;
+            this.document = document;
+        }
+
+        Document document() {
+            return document;
+        }
+
+        @Override
+        public void close() {
+            pool.release(this);
+        }
+    }
+
+    private static final class LeakRecord extends WeakReference<Lease> {
+        final Throwable acquiredAt = new Throwable("Document acquired here");
+
+        LeakRecord(Lease lease, ReferenceQueue<Lease> queue) {
+            super(lease, queue);
+        }
+    }
+}
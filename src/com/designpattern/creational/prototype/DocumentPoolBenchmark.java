@@ -0,0 +1,119 @@
+package com.designpattern.creational.prototype;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/*
+Two threads create and discard short-lived Documents derived from three prototypes, either by clone() or through
+one DocumentPool per prototype (with leak sampling on), and set a title, read some content and a style on each.
+One document in 256 also edits its content. Reports documents per second, bytes allocated per document, and the
+number and total time of garbage collections.
+ */
+public class DocumentPoolBenchmark {
+
+    private static final int THREADS = 2;
+    private static final int DOCUMENTS_PER_THREAD = 5_000_000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        Document[] prototypes = new Document[3];
+        DocumentPool[] pools = new DocumentPool[prototypes.length];
+        for (int i = 0; i < prototypes.length; i++) {
+            prototypes[i] = new Document("Template " + i, ("Paragraph " + i + ". ").repeat(400), "Plain");
+            prototypes[i].setStyle("body", "Serif 1" + i + "pt");
+            pools[i] = new DocumentPool(prototypes[i], 64, 4096);
+        }
+        for (int run = 1; run <= RUNS; run++) {
+            Result cloned = measure(worker -> {
+                long checksum = 0;
+                for (int i = 0; i < DOCUMENTS_PER_THREAD; i++) {
+                    Document document = prototypes[i % prototypes.length].clone();
+                    checksum += use(document, i);
+                }
+                return checksum;
+            });
+            Result pooled = measure(worker -> {
+                long checksum = 0;
+                for (int i = 0; i < DOCUMENTS_PER_THREAD; i++) {
+                    DocumentPool pool = pools[i % pools.length];
+                    DocumentPool.Lease lease = pool.acquire();
+                    checksum += use(lease.document(), i);
+                    pool.release(lease);
+                }
+                return checksum;
+            });
+            System.out.printf("Run %d: clone %s; pool %s%n", run, cloned, pooled);
+        }
+        long leaks = 0;
+        for (DocumentPool pool : pools)
+            leaks += pool.leaks();
+        System.out.printf("Pools created %d documents for %d acquires; %d leaks%n",
+                pools[0].created() + pools[1].created() + pools[2].created(), (long) RUNS * THREADS * DOCUMENTS_PER_THREAD, leaks);
+    }
+
+    private static final String[] TITLES = new String[1024];
+
+    static {
+        for (int i = 0; i < TITLES.length; i++)
+            TITLES[i] = "Letter " + i;
+    }
+
+    private static int use(Document document, int i) {
+        document.setTitle(TITLES[i & (TITLES.length - 1)]);
+        if ((i & 255) == 0)
+            document.editContent(0, 9, "Sentence.");
+        return document.getTitle().length() + document.getStyle("body").length() + document.contentLength();
+    }
+
+    private interface Workload {
+        long run(int worker);
+    }
+
+    private static Result measure(Workload workload) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        System.gc();
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount -= collector.getCollectionCount();
+            gcMillis -= collector.getCollectionTime();
+        }
+        Thread[] workers = new Thread[THREADS];
+        long[] allocated = new long[THREADS];
+        long[] checksums = new long[THREADS];
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                long bytes = threads.getCurrentThreadAllocatedBytes();
+                checksums[worker] = workload.run(worker);
+                allocated[worker] = threads.getCurrentThreadAllocatedBytes() - bytes;
+            });
+            workers[t].start();
+        }
+        long bytes = 0;
+        long checksum = 0;
+        for (int t = 0; t < THREADS; t++) {
+            workers[t].join();
+            bytes += allocated[t];
+            checksum += checksums[t];
+        }
+        long nanos = System.nanoTime() - start;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += collector.getCollectionCount();
+            gcMillis += collector.getCollectionTime();
+        }
+        long documents = (long) THREADS * DOCUMENTS_PER_THREAD;
+        return new Result(documents * 1e9 / nanos, (double) bytes / documents, gcCount, gcMillis, checksum);
+    }
+
+    private record Result(double perSecond, double bytesPerDocument, long gcCount, long gcMillis, long checksum) {
+        @Override
+        public String toString() {
+            return String.format("%.1f M documents/s, %.1f bytes each, %d GCs taking %d ms", perSecond / 1e6,
+                    bytesPerDocument, gcCount, gcMillis);
+        }
+    }
+}
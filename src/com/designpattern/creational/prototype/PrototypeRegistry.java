@@ -0,0 +1,28 @@
+package com.designpattern.creational.prototype;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Named Document prototypes. register() keeps its own copy, so later edits to the registered document do not leak
+into the prototype. create() hands out a copy-on-write clone in O(1) whatever the size of the template: the clone
+shares the prototype's content chunks and style table and copies only what it edits.
+ */
+class PrototypeRegistry {
+    private final ConcurrentHashMap<String, Document> prototypes = new ConcurrentHashMap<>();
+
+    public void register(String name, Document prototype) {
+        prototypes.put(name, prototype.clone());
+    }
+
+    public Document create(String name) {
+        Document prototype = prototypes.get(name);
+        if (prototype == null)
+            throw new IllegalArgumentException("No prototype named " + name);
+        return prototype.clone();
+    }
+
+    public Set<String> names() {
+        return prototypes.keySet();
+    }
+}
@@ -0,0 +1,55 @@
+package com.designpattern.creational.prototype;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Named styles of a Document. Like ChunkedText, copy() shares the map until either side changes a style,
+which then copies the map for itself.
+ */
+final class StyleTable {
+    private Map<String, String> styles;
+    private boolean shared;
+
+    StyleTable() {
+        this(new HashMap<>());
+    }
+
+    private StyleTable(Map<String, String> styles) {
+        this.styles = styles;
+    }
+
+    StyleTable copy() {
+        if (!shared)
+            shared = true;
+        StyleTable copy = new StyleTable(styles);
+        copy.shared = true;
+        return copy;
+    }
+
+    void resetFrom(StyleTable other) {
+        styles = other.styles;
+        shared = true;
+    }
+
+    String get(String name) {
+        return styles.get(name);
+    }
+
+    void set(String name, String value) {
+        if (shared) {
+            styles = new HashMap<>(styles);
+            shared = false;
+        }
+        styles.put(name, value);
+    }
+
+    int size() {
+        return styles.size();
+    }
+
+    @Override
+    public String toString() {
+        return styles.toString();
+    }
+}
@@ -1,5 +1,8 @@
 package com.designpattern.structural.adapter;
 
+import java.time.Duration;
+import java.util.List;
+
 public class AdapterPatternDemo {
     public static void main(String[] args) {
         PaymentProcessor payPal = new PayPalProcessor();
@@ -8,5 +11,28 @@ public class AdapterPatternDemo {
         StripePaymentGateway stripePaymentGateway = new StripePaymentGateway();
         StripeAdapter stripeAdapter = new StripeAdapter(stripePaymentGateway);
         stripeAdapter.pay(100);
+        System.out.println();
+
+        payPal.payAll(1999, 250).join();
+        System.out.println();
+
+        StripePaymentGateway remoteGateway = new StripePaymentGateway(Duration.ofMillis(20), 4);
+        try (StripeAdapter batching = new StripeAdapter(remoteGateway, 64, Duration.ofMillis(5))) {
+            long[] amounts = new long[1_000];
+            for (int i = 0; i < amounts.length; i++)
+                amounts[i] = 100 + i;
+            batching.payAll(amounts).join();
+            System.out.printf("Paid %d payments worth %d cents in %d gateway calls%n",
+                    remoteGateway.payments(), remoteGateway.totalCents(), remoteGateway.calls());
+        }
+
+        StripePaymentGateway backupGateway = new StripePaymentGateway(Duration.ofMillis(5), 4);
+        try (StripeAdapter backup = new StripeAdapter(backupGateway, 16, Duration.ofMillis(2))) {
+            ResilientPaymentProcessor resilient = new ResilientPaymentProcessor(ResilientPaymentProcessor.Settings.defaults(),
+                    List.of("stripe", "paypal"), List.of(backup, payPal));
+            resilient.payAll(1250, 4000, 999).join();
+            System.out.println();
+            System.out.println("Resilient payments: " + resilient.stats());
+        }
     }
 }
@@ -0,0 +1,109 @@
+package com.designpattern.structural.adapter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Local gateway stub that injects the faults a real one shows: a slow tail, declines before anything is charged,
+responses lost after the charge went through, and outages where every connection is refused. Charges are recorded
+per idempotency key, so a repeated key is never charged twice.
+ */
+public class FaultInjectingGateway implements IdempotentPaymentProcessor {
+    private final String name;
+    private final long baseLatencyMicros;
+    private final long tailLatencyMicros;
+    private final double tailProbability;
+    private final double declineProbability;
+    private final double lostResponseProbability;
+    private volatile boolean outage;
+
+    private final Map<String, Long> charges = new ConcurrentHashMap<>();
+    private final AtomicLong chargedCents = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    public FaultInjectingGateway(String name, long baseLatencyMicros, long tailLatencyMicros, double tailProbability,
+                                 double declineProbability, double lostResponseProbability) {
+        this.name = name;
+        this.baseLatencyMicros = baseLatencyMicros;
+        this.tailLatencyMicros = tailLatencyMicros;
+        this.tailProbability = tailProbability;
+        this.declineProbability = declineProbability;
+        this.lostResponseProbability = lostResponseProbability;
+    }
+
+    @Override
+    public void pay(int amount) {
+        payCents(amount * 100L);
+    }
+
+    @Override
+    public void payCents(long amountCents) {
+        payAsync(UUID.randomUUID().toString(), amountCents).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> payAsync(long amountCents) {
+        return payAsync(UUID.randomUUID().toString(), amountCents);
+    }
+
+    @Override
+    public CompletableFuture<Void> payAsync(String idempotencyKey, long amountCents) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                process(idempotencyKey, amountCents);
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private void process(String key, long amountCents) throws InterruptedException {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (outage) {
+            Thread.sleep(1);
+            throw new GatewayException(name + " refused the connection", false);
+        }
+        long micros = baseLatencyMicros / 2 + random.nextLong(baseLatencyMicros + 1);
+        if (random.nextDouble() < tailProbability)
+            micros += tailLatencyMicros;
+        Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+        if (random.nextDouble() < declineProbability)
+            throw new PaymentDeclinedException(name + " declined the request, nothing was charged");
+        Long previous = charges.putIfAbsent(key, amountCents);
+        if (previous == null)
+            chargedCents.addAndGet(amountCents);
+        else if (previous != amountCents)
+            throw new IllegalArgumentException("Idempotency key " + key + " was already used for " + previous + " cents");
+        if (random.nextDouble() < lostResponseProbability)
+            throw new GatewayException(name + " lost the response", true);
+    }
+
+    public void setOutage(boolean outage) {
+        this.outage = outage;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long chargedCents() {
+        return chargedCents.get();
+    }
+
+    public Set<String> chargedKeys() {
+        return charges.keySet();
+    }
+}
@@ -0,0 +1,25 @@
+package com.designpattern.structural.adapter;
+
+/*
+Failure reported by a payment gateway. outcomeUnknown is false only when the gateway guarantees that nothing was
+charged, e.g. it refused the connection or declined the request before processing it.
+ */
+public class GatewayException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean outcomeUnknown;
+
+    public GatewayException(String message, boolean outcomeUnknown) {
+        super(message);
+        this.outcomeUnknown = outcomeUnknown;
+    }
+
+    public GatewayException(String message, boolean outcomeUnknown, Throwable cause) {
+        super(message, cause);
+        this.outcomeUnknown = outcomeUnknown;
+    }
+
+    public boolean isOutcomeUnknown() {
+        return outcomeUnknown;
+    }
+}
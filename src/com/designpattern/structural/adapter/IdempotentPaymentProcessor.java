@@ -0,0 +1,11 @@
+package com.designpattern.structural.adapter;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+A processor whose backend charges each idempotency key at most once. Sending the same key again, even while the first
+request is still in flight, returns the original outcome instead of charging twice, so callers may retry and hedge.
+ */
+public interface IdempotentPaymentProcessor extends PaymentProcessor {
+    CompletableFuture<Void> payAsync(String idempotencyKey, long amountCents);
+}
@@ -5,4 +5,11 @@ public class PayPalProcessor implements PaymentProcessor{
     public void pay(int amount) {
         System.out.printf("Processing payment of $ %d via PayPal.", amount);
     }
+
+    @Override
+    public void payCents(long amountCents) {
+        if (amountCents < 0)
+            throw new IllegalArgumentException("PayPal cannot pay a negative amount: " + amountCents + " cents");
+        System.out.printf("Processing payment of $ %d.%02d via PayPal.", amountCents / 100, amountCents % 100);
+    }
 }
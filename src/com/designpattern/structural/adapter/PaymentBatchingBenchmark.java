@@ -0,0 +1,69 @@
+package com.designpattern.structural.adapter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Pays through a StripeAdapter against a local gateway with a 2 ms round trip and 16 connections, one request per
+payment and then in micro-batches of up to 256 payments or 1 ms. Each run is a burst submitted all at once, and the
+batched adapter also gets a steady stream of 100k payments per second, where the time bound decides the batch size.
+Reports batch sizes, throughput and latency percentiles from submission to completion.
+ */
+public class PaymentBatchingBenchmark {
+
+    public static void main(String[] args) {
+        for (int run = 1; run <= 3; run++) {
+            System.out.println("Run " + run);
+            StripePaymentGateway gateway = new StripePaymentGateway(Duration.ofMillis(2), 16);
+            try (StripeAdapter single = new StripeAdapter(gateway)) {
+                measure("one request per payment", single, gateway, 20_000, 0);
+            }
+            gateway = new StripePaymentGateway(Duration.ofMillis(2), 16);
+            try (StripeAdapter batched = new StripeAdapter(gateway, 256, Duration.ofMillis(1))) {
+                measure("batched, burst", batched, gateway, 500_000, 0);
+            }
+            gateway = new StripePaymentGateway(Duration.ofMillis(2), 16);
+            try (StripeAdapter batched = new StripeAdapter(gateway, 256, Duration.ofMillis(1))) {
+                measure("batched, 100k/s", batched, gateway, 200_000, 100_000);
+            }
+        }
+    }
+
+    // ratePerSecond 0 submits everything at once
+    private static void measure(String label, StripeAdapter adapter, StripePaymentGateway gateway, int payments,
+                                int ratePerSecond) {
+        Random random = new Random(7);
+        long[] amounts = new long[payments];
+        long expectedCents = 0;
+        for (int i = 0; i < payments; i++) {
+            amounts[i] = 1 + random.nextInt(50_000);
+            expectedCents += amounts[i];
+        }
+        long[] latencies = new long[payments];
+        CompletableFuture<?>[] results = new CompletableFuture<?>[payments];
+        long start = System.nanoTime();
+        for (int i = 0; i < payments; i++) {
+            if (ratePerSecond > 0) {
+                long due = start + i * 1_000_000_000L / ratePerSecond;
+                while (System.nanoTime() < due)
+                    LockSupport.parkNanos(due - System.nanoTime());
+            }
+            long submitted = System.nanoTime();
+            int index = i;
+            results[i] = adapter.payAsync(amounts[i]).thenRun(() -> latencies[index] = System.nanoTime() - submitted);
+        }
+        CompletableFuture.allOf(results).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        long batches = adapter.batchCount() == 0 ? gateway.calls() : adapter.batchCount();
+        System.out.printf("  %-24s %7d payments in %d gateway calls (avg batch %.1f, largest %d, %d full), "
+                        + "%.0f payments/s, latency p50 %.2f ms p99 %.2f ms, %s%n",
+                label, payments, gateway.calls(), (double) payments / batches, Math.max(1, adapter.largestBatch()),
+                adapter.fullBatchCount(), payments / seconds, latencies[payments / 2] / 1e6,
+                latencies[(int) (payments * 0.99)] / 1e6,
+                gateway.payments() == payments && gateway.totalCents() == expectedCents ? "totals match" : "TOTALS DIFFER");
+    }
+}
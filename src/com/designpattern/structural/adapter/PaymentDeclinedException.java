@@ -0,0 +1,13 @@
+package com.designpattern.structural.adapter;
+
+/*
+The gateway processed the request and declined it, so nothing was charged. Unlike a refused connection this says
+the gateway itself is healthy.
+ */
+public class PaymentDeclinedException extends GatewayException {
+    private static final long serialVersionUID = 1L;
+
+    public PaymentDeclinedException(String message) {
+        super(message, false);
+    }
+}
@@ -1,5 +1,45 @@
 package com.designpattern.structural.adapter;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface PaymentProcessor {
     void pay(int amount);
+
+    // Exact amount in cents. The default goes through pay(int), so it only accepts whole dollars
+    default void payCents(long amountCents) {
+        if (amountCents < 0 || amountCents % 100 != 0 || amountCents / 100 > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(getClass().getSimpleName() + " can only pay whole dollars, not "
+                    + amountCents + " cents");
+        pay((int) (amountCents / 100));
+    }
+
+    // Runs payCents on a virtual thread; processors that can batch or pipeline payments override this
+    default CompletableFuture<Void> payAsync(long amountCents) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                payCents(amountCents);
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    // Completes when every payment has gone through, or exceptionally as soon as one fails; the other payments
+    // keep running, since one that has already been sent cannot be called back
+    default CompletableFuture<Void> payAll(long... amountsCents) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<?>[] payments = new CompletableFuture<?>[amountsCents.length];
+        for (int i = 0; i < amountsCents.length; i++) {
+            payments[i] = payAsync(amountsCents[i]);
+            payments[i].exceptionally(e -> {
+                result.completeExceptionally(e);
+                return null;
+            });
+        }
+        CompletableFuture.allOf(payments).thenRun(() -> result.complete(null));
+        return result;
+    }
 }
@@ -0,0 +1,96 @@
+package com.designpattern.structural.adapter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/*
+Sends 20,000 payments, 200 at a time, to fault-injecting gateways: directly to one gateway, then through a
+ResilientPaymentProcessor routing over two. Partway through the resilient run the first gateway goes down for a
+while. Reports latency percentiles and failures, and checks that no idempotency key was charged twice or on both
+gateways and that the charged total matches the successful payments.
+ */
+public class ResilienceBenchmark {
+
+    private static final int PAYMENTS = 20_000;
+    private static final int CONCURRENCY = 200;
+
+    public static void main(String[] args) throws InterruptedException {
+        FaultInjectingGateway direct = stripe();
+        run("direct to stripe", direct, null, List.of(direct));
+
+        FaultInjectingGateway stripe = stripe();
+        FaultInjectingGateway payPal = new FaultInjectingGateway("paypal", 3_000, 150_000, 0.03, 0.02, 0.01);
+        ResilientPaymentProcessor resilient = new ResilientPaymentProcessor(ResilientPaymentProcessor.Settings.defaults(),
+                List.of("stripe", "paypal"), List.of(stripe, payPal));
+        run("resilient, with outage", resilient, stripe, List.of(stripe, payPal));
+        System.out.println("  " + resilient.stats());
+    }
+
+    private static FaultInjectingGateway stripe() {
+        return new FaultInjectingGateway("stripe", 2_000, 200_000, 0.05, 0.02, 0.01);
+    }
+
+    private static void run(String label, IdempotentPaymentProcessor processor, FaultInjectingGateway outageTarget,
+                            List<FaultInjectingGateway> gateways) throws InterruptedException {
+        long[] latencies = new long[PAYMENTS];
+        boolean[] succeeded = new boolean[PAYMENTS];
+        long[] amounts = new long[PAYMENTS];
+        String[] keys = new String[PAYMENTS];
+        CompletableFuture<?>[] results = new CompletableFuture<?>[PAYMENTS];
+        Semaphore permits = new Semaphore(CONCURRENCY);
+        long start = System.nanoTime();
+        for (int i = 0; i < PAYMENTS; i++) {
+            if (outageTarget != null && i == PAYMENTS / 4)
+                outageTarget.setOutage(true);
+            if (outageTarget != null && i == PAYMENTS / 2)
+                outageTarget.setOutage(false);
+            permits.acquire();
+            int index = i;
+            amounts[i] = 100 + i;
+            keys[i] = "order-" + label.hashCode() + "-" + i;
+            long submitted = System.nanoTime();
+            results[i] = processor.payAsync(keys[i], amounts[i]).whenComplete((ignored, failure) -> {
+                latencies[index] = System.nanoTime() - submitted;
+                succeeded[index] = failure == null;
+                permits.release();
+            });
+        }
+        for (CompletableFuture<?> result : results)
+            result.exceptionally(failure -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int failures = 0;
+        long expectedCents = 0;
+        for (int i = 0; i < PAYMENTS; i++) {
+            if (succeeded[i])
+                expectedCents += amounts[i];
+            else
+                failures++;
+        }
+        Set<String> seen = new HashSet<>();
+        long charged = 0;
+        int duplicates = 0;
+        for (FaultInjectingGateway gateway : gateways) {
+            charged += gateway.chargedCents();
+            for (String key : gateway.chargedKeys()) {
+                if (!seen.add(key))
+                    duplicates++;
+            }
+        }
+        // failed payments may still have been charged when their last response was lost
+        long unconfirmedCents = 0;
+        for (int i = 0; i < PAYMENTS; i++) {
+            if (!succeeded[i] && seen.contains(keys[i]))
+                unconfirmedCents += amounts[i];
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-24s %.1f s, p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, %d failed, %d keys charged twice, %s%n",
+                label, seconds, latencies[PAYMENTS / 2] / 1e6, latencies[(int) (PAYMENTS * 0.99)] / 1e6,
+                latencies[(int) (PAYMENTS * 0.999)] / 1e6, failures, duplicates,
+                charged == expectedCents + unconfirmedCents ? "charges match successful payments" : "CHARGES DIFFER");
+    }
+}
@@ -0,0 +1,391 @@
+package com.designpattern.structural.adapter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Decorator that makes payments over one or more processors resilient to slow and failing gateways.
+
+Every payment carries one idempotency key for all of its requests. An attempt that has not finished by the route's
+hedging percentile gets a second, identical request, and whichever answers first wins. Failed attempts are retried
+after a fully jittered exponential backoff. Each route has a circuit breaker, and new payments go to the route with
+the lowest recent latency weighted by its requests in flight.
+
+Idempotency keys are only honoured by the gateway that issued the charge, so a payment stays on the first route
+where the outcome of a request became unknown (a timeout or lost response). It only moves to another route while
+every failure so far guaranteed that nothing was charged. That way no payment is charged twice.
+
+Processors that are not IdempotentPaymentProcessors, like PayPalProcessor or StripeAdapter, get the keys honoured
+locally instead: a key sends at most one payment to the processor at a time, and once a payment may have been
+charged, repeating its key returns that outcome rather than paying again.
+
+A decline means the gateway answered, so it is retried like other failures but does not count against the
+route's circuit breaker.
+ */
+public class ResilientPaymentProcessor implements IdempotentPaymentProcessor {
+
+    public record Settings(int maxAttempts, Duration attemptTimeout, Duration backoffBase, Duration backoffCap,
+                           double hedgePercentile, Duration minHedgeDelay, int breakerFailureThreshold,
+                           Duration breakerCooldown) {
+
+        public static Settings defaults() {
+            return new Settings(4, Duration.ofMillis(500), Duration.ofMillis(5), Duration.ofMillis(200), 0.95,
+                    Duration.ofMillis(1), 5, Duration.ofSeconds(1));
+        }
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Settings settings;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    public ResilientPaymentProcessor(Settings settings, List<String> names, List<? extends PaymentProcessor> processors) {
+        if (names.size() != processors.size() || processors.isEmpty())
+            throw new IllegalArgumentException("Need one name for each of at least one processor");
+        this.settings = settings;
+        for (int i = 0; i < processors.size(); i++) {
+            PaymentProcessor processor = processors.get(i);
+            routes.add(new Route(names.get(i), processor instanceof IdempotentPaymentProcessor idempotent ? idempotent
+                    : new LocalIdempotency(processor), settings));
+        }
+    }
+
+    @Override
+    public void pay(int amount) {
+        payCents(amount * 100L);
+    }
+
+    @Override
+    public void payCents(long amountCents) {
+        payAsync(amountCents).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> payAsync(long amountCents) {
+        return payAsync(UUID.randomUUID().toString(), amountCents);
+    }
+
+    @Override
+    public CompletableFuture<Void> payAsync(String idempotencyKey, long amountCents) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                pay(idempotencyKey, amountCents);
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private void pay(String key, long amountCents) throws InterruptedException {
+        Route pinned = null;
+        Route previous = null;
+        Throwable lastFailure = null;
+        // the failure that pinned the payment, kept as the cause because the payment may have been charged
+        Throwable possiblyCharged = null;
+        for (int attempt = 0; attempt < settings.maxAttempts(); attempt++) {
+            if (attempt > 0) {
+                retries.increment();
+                long cap = Math.min(settings.backoffCap().toNanos(), settings.backoffBase().toNanos() << Math.min(attempt - 1, 20));
+                TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+            }
+            Route route = pinned != null ? (pinned.breaker.allowRequest() ? pinned : null) : choose();
+            if (route == null) {
+                lastFailure = new GatewayException("No payment route is available", false);
+                continue;
+            }
+            if (previous != null && route != previous)
+                failovers.increment();
+            previous = route;
+            Throwable failure = attempt(route, key, amountCents);
+            if (failure == null)
+                return;
+            lastFailure = failure;
+            if (!(failure instanceof GatewayException gateway) || gateway.isOutcomeUnknown()) {
+                if (pinned == null)
+                    possiblyCharged = failure;
+                pinned = route;
+            }
+        }
+        if (possiblyCharged == null)
+            throw new RuntimeException("Payment " + key + " failed after " + settings.maxAttempts() + " attempts", lastFailure);
+        RuntimeException failed = new RuntimeException("Payment " + key + " failed after " + settings.maxAttempts()
+                + " attempts and may have been charged on " + pinned.name, possiblyCharged);
+        if (lastFailure != possiblyCharged)
+            failed.addSuppressed(lastFailure);
+        throw failed;
+    }
+
+    // Returns null on success, otherwise the failure of the attempt
+    private Throwable attempt(Route route, String key, long amountCents) throws InterruptedException {
+        attempts.increment();
+        route.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<Integer> firstSuccess = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<Throwable> unknownOutcome = new AtomicReference<>();
+        send(route, key, amountCents, 0, firstSuccess, outstanding, unknownOutcome);
+        try {
+            long hedgeDelay = route.latency.hedgeDelayNanos();
+            try {
+                firstSuccess.get(hedgeDelay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // the request has passed the route's usual latency, so race it with an identical one
+                if (outstanding.incrementAndGet() > 1) {
+                    hedges.increment();
+                    send(route, key, amountCents, 1, firstSuccess, outstanding, unknownOutcome);
+                }
+                long remaining = settings.attemptTimeout().toNanos() - (System.nanoTime() - start);
+                if (firstSuccess.get(Math.max(0, remaining), TimeUnit.NANOSECONDS) == 1)
+                    hedgeWins.increment();
+            }
+            route.latency.record(System.nanoTime() - start);
+            route.breaker.onSuccess();
+            return null;
+        } catch (TimeoutException e) {
+            route.latency.record(System.nanoTime() - start);
+            route.breaker.onFailure();
+            return new GatewayException(route.name + " did not answer within " + settings.attemptTimeout().toMillis() + " ms", true);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PaymentDeclinedException) {
+                route.latency.record(System.nanoTime() - start);
+                route.breaker.onSuccess();
+            } else {
+                route.breaker.onFailure();
+            }
+            return e.getCause();
+        } catch (InterruptedException e) {
+            // this attempt may have been the breaker's half-open probe, which has to be answered either way
+            route.breaker.onFailure();
+            Thread.currentThread().interrupt();
+            throw e;
+        } finally {
+            route.inFlight.decrementAndGet();
+        }
+    }
+
+    /*
+    Completes firstSuccess with the number of the request that succeeded first. When all requests fail it completes
+    with a failure whose outcome is unknown if that holds for any of them, so the payment stays pinned to the route.
+     */
+    private void send(Route route, String key, long amountCents, int request, CompletableFuture<Integer> firstSuccess,
+                      AtomicInteger outstanding, AtomicReference<Throwable> unknownOutcome) {
+        route.processor.payAsync(key, amountCents).whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                firstSuccess.complete(request);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (!(cause instanceof GatewayException gateway) || gateway.isOutcomeUnknown())
+                unknownOutcome.compareAndSet(null, cause);
+            if (outstanding.decrementAndGet() == 0) {
+                Throwable unknown = unknownOutcome.get();
+                firstSuccess.completeExceptionally(unknown != null ? unknown : cause);
+            }
+        });
+    }
+
+    private Route choose() {
+        Route[] byScore = routes.toArray(new Route[0]);
+        Arrays.sort(byScore, Comparator.comparingDouble(Route::score));
+        for (Route route : byScore) {
+            if (route.breaker.allowRequest())
+                return route;
+        }
+        return null;
+    }
+
+    public String stats() {
+        StringBuilder builder = new StringBuilder(String.format("attempts %d, retries %d, hedges %d (%d won), failovers %d",
+                attempts.sum(), retries.sum(), hedges.sum(), hedgeWins.sum(), failovers.sum()));
+        for (Route route : routes)
+            builder.append(String.format("; %s p%.0f %.1f ms, breaker opened %d times", route.name,
+                    settings.hedgePercentile() * 100, route.latency.hedgeDelayNanos() / 1e6, route.breaker.opened.sum()));
+        return builder.toString();
+    }
+
+    /*
+    Gives a processor without idempotency keys at-most-once semantics per key within this process. Requests with a
+    key that is already in flight share its result. The key is forgotten once its payment went through or failed
+    with nothing charged; after any other failure it keeps answering with that failure. IllegalArgumentException and
+    IllegalStateException (a rejected amount, a closed processor) are thrown before anything is sent, so they count
+    as nothing charged.
+     */
+    private static final class LocalIdempotency implements IdempotentPaymentProcessor {
+        private final PaymentProcessor processor;
+        private final Map<String, CompletableFuture<Void>> payments = new ConcurrentHashMap<>();
+
+        LocalIdempotency(PaymentProcessor processor) {
+            this.processor = processor;
+        }
+
+        @Override
+        public void pay(int amount) {
+            processor.pay(amount);
+        }
+
+        @Override
+        public CompletableFuture<Void> payAsync(String idempotencyKey, long amountCents) {
+            CompletableFuture<Void> payment = new CompletableFuture<>();
+            CompletableFuture<Void> existing = payments.putIfAbsent(idempotencyKey, payment);
+            if (existing != null)
+                return existing;
+            CompletableFuture<Void> sent;
+            try {
+                sent = processor.payAsync(amountCents);
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((ignored, failure) -> {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                if (cause instanceof IllegalArgumentException || cause instanceof IllegalStateException)
+                    cause = new GatewayException("Payment was rejected before it was sent: " + cause.getMessage(), false, cause);
+                if (cause == null || cause instanceof GatewayException gateway && !gateway.isOutcomeUnknown())
+                    payments.remove(idempotencyKey, payment);
+                if (cause == null)
+                    payment.complete(null);
+                else
+                    payment.completeExceptionally(cause);
+            });
+            return payment;
+        }
+    }
+
+    private static final class Route {
+        final String name;
+        final IdempotentPaymentProcessor processor;
+        final CircuitBreaker breaker;
+        final LatencyTracker latency;
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Route(String name, IdempotentPaymentProcessor processor, Settings settings) {
+            this.name = name;
+            this.processor = processor;
+            this.breaker = new CircuitBreaker(settings.breakerFailureThreshold(), settings.breakerCooldown().toNanos());
+            this.latency = new LatencyTracker(settings.hedgePercentile(), settings.minHedgeDelay().toNanos(),
+                    settings.attemptTimeout().toNanos());
+        }
+
+        double score() {
+            return latency.averageNanos() * (inFlight.get() + 1);
+        }
+    }
+
+    /*
+    Opens after threshold consecutive failures and rejects requests for the cooldown. Then it lets a single probe
+    through: success closes it, failure opens it again.
+     */
+    static final class CircuitBreaker {
+        private enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int threshold;
+        private final long cooldownNanos;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        final LongAdder opened = new LongAdder();
+
+        CircuitBreaker(int threshold, long cooldownNanos) {
+            this.threshold = threshold;
+            this.cooldownNanos = cooldownNanos;
+        }
+
+        synchronized boolean allowRequest() {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openedAt < cooldownNanos)
+                        return false;
+                    state = State.HALF_OPEN;
+                    return true;
+                default:
+                    // a probe is already out
+                    return false;
+            }
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= threshold)) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                opened.increment();
+            }
+        }
+    }
+
+    /*
+    Keeps the last 1024 attempt latencies of a route. The hedging percentile is recomputed every 64 samples,
+    and the average feeds routing.
+     */
+    static final class LatencyTracker {
+        private static final int WINDOW = 1024;
+        private static final int WARMUP = 32;
+
+        private final double percentile;
+        private final long minNanos;
+        private final long maxNanos;
+        private final long[] samples = new long[WINDOW];
+        private long count;
+        private long sum;
+        private volatile long hedgeDelayNanos;
+        private volatile double averageNanos;
+
+        LatencyTracker(double percentile, long minNanos, long maxNanos) {
+            this.percentile = percentile;
+            this.minNanos = minNanos;
+            this.maxNanos = maxNanos;
+            // hedge only very slow requests until there is enough data
+            this.hedgeDelayNanos = maxNanos / 2;
+        }
+
+        synchronized void record(long nanos) {
+            int slot = (int) (count++ % WINDOW);
+            sum += nanos - samples[slot];
+            samples[slot] = nanos;
+            int filled = (int) Math.min(count, WINDOW);
+            averageNanos = (double) sum / filled;
+            if (count >= WARMUP && count % 64 == 0) {
+                long[] sorted = Arrays.copyOf(samples, filled);
+                Arrays.sort(sorted);
+                long value = sorted[Math.min(filled - 1, (int) (filled * percentile))];
+                hedgeDelayNanos = Math.max(minNanos, Math.min(maxNanos, value));
+            }
+        }
+
+        long hedgeDelayNanos() {
+            return hedgeDelayNanos;
+        }
+
+        double averageNanos() {
+            return averageNanos;
+        }
+    }
+}
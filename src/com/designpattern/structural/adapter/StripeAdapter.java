@@ -1,13 +1,234 @@
 package com.designpattern.structural.adapter;
 
-public class StripeAdapter implements PaymentProcessor{
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+With the batching constructor, payAsync() collects payments into a micro-batch that is sent to the gateway as a single
+request once it holds maxBatchSize payments or its oldest payment has waited maxDelay, whichever comes first.
+Each batch is sent on its own virtual thread and completes the futures of all its payments together.
+close() returns once every payment accepted before it has been sent.
+ */
+public class StripeAdapter implements PaymentProcessor, AutoCloseable {
     private StripePaymentGateway stripePaymentGateway;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchStarted = lock.newCondition();
+    private final Condition allSent = lock.newCondition();
+    // payments and batches handed to a sending thread that has not finished yet, guarded by lock
+    private int sending;
+    private long[] pendingAmounts;
+    private CompletableFuture<Void>[] pendingResults;
+    private int pendingCount;
+    private long pendingSince;
+    private boolean closed;
+    private Thread flusher;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedPayments = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+    private final LongAdder fullBatches = new LongAdder();
 
     public StripeAdapter(StripePaymentGateway stripePaymentGateway) {
+        this(stripePaymentGateway, 1, Duration.ZERO);
+    }
+
+    public StripeAdapter(StripePaymentGateway stripePaymentGateway, int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
         this.stripePaymentGateway = stripePaymentGateway;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.pendingAmounts = new long[maxBatchSize];
+        this.pendingResults = newResults(maxBatchSize);
     }
+
     @Override
     public void pay(int amount) {
-        stripePaymentGateway.makePayment((double) amount);
+        payCents(amount * 100L);
+    }
+
+    @Override
+    public void payCents(long amountCents) {
+        checkAmount(amountCents);
+        stripePaymentGateway.makePayment(amountCents);
+    }
+
+    @Override
+    public CompletableFuture<Void> payAsync(long amountCents) {
+        if (maxBatchSize == 1)
+            return payUnbatched(amountCents);
+        checkAmount(amountCents);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        long[] fullAmounts;
+        CompletableFuture<Void>[] fullResults;
+        lock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("StripeAdapter is closed");
+            if (flusher == null)
+                flusher = Thread.ofVirtual().name("stripe-batch-flusher").start(this::flushExpiredBatches);
+            if (pendingCount == 0) {
+                pendingSince = System.nanoTime();
+                batchStarted.signal();
+            }
+            pendingAmounts[pendingCount] = amountCents;
+            pendingResults[pendingCount++] = result;
+            if (pendingCount < maxBatchSize)
+                return result;
+            fullAmounts = pendingAmounts;
+            fullResults = pendingResults;
+            pendingAmounts = new long[maxBatchSize];
+            pendingResults = newResults(maxBatchSize);
+            pendingCount = 0;
+            sending++;
+        } finally {
+            lock.unlock();
+        }
+        fullBatches.increment();
+        send(fullAmounts, fullResults, maxBatchSize);
+        return result;
+    }
+
+    private void flushExpiredBatches() {
+        while (true) {
+            long[] amounts;
+            CompletableFuture<Void>[] results;
+            int count;
+            lock.lock();
+            try {
+                while (!closed && (pendingCount == 0 || System.nanoTime() - pendingSince < maxDelayNanos)) {
+                    if (pendingCount == 0)
+                        batchStarted.awaitUninterruptibly();
+                    else
+                        batchStarted.awaitNanos(maxDelayNanos - (System.nanoTime() - pendingSince));
+                }
+                if (pendingCount == 0)
+                    return;
+                amounts = pendingAmounts;
+                results = pendingResults;
+                count = pendingCount;
+                pendingAmounts = new long[maxBatchSize];
+                pendingResults = newResults(maxBatchSize);
+                pendingCount = 0;
+                sending++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            send(amounts, results, count);
+        }
+    }
+
+    private CompletableFuture<Void> payUnbatched(long amountCents) {
+        checkAmount(amountCents);
+        lock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("StripeAdapter is closed");
+            sending++;
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                stripePaymentGateway.makePayment(amountCents);
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                sent();
+            }
+        });
+        return result;
+    }
+
+    // The caller has counted the batch in sending
+    private void send(long[] amounts, CompletableFuture<Void>[] results, int count) {
+        batches.increment();
+        batchedPayments.add(count);
+        largestBatch.accumulateAndGet(count, Math::max);
+        Thread.startVirtualThread(() -> {
+            try {
+                stripePaymentGateway.makeBatchPayment(amounts, count);
+                for (int i = 0; i < count; i++)
+                    results[i].complete(null);
+            } catch (Throwable e) {
+                for (int i = 0; i < count; i++)
+                    results[i].completeExceptionally(e);
+            } finally {
+                sent();
+            }
+        });
+    }
+
+    private void sent() {
+        lock.lock();
+        try {
+            if (--sending == 0)
+                allSent.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sends whatever is still pending and waits until every accepted payment has been sent; later payments are rejected
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            batchStarted.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (flusher != null)
+                flusher.join();
+            lock.lock();
+            try {
+                while (sending > 0)
+                    allSent.await();
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    public long batchedPaymentCount() {
+        return batchedPayments.sum();
+    }
+
+    // Batches sent because they were full rather than because maxDelay ran out
+    public long fullBatchCount() {
+        return fullBatches.sum();
+    }
+
+    public int largestBatch() {
+        return largestBatch.get();
+    }
+
+    private static void checkAmount(long amountCents) {
+        if (amountCents <= 0)
+            throw new IllegalArgumentException("Payment amount must be positive, got " + amountCents + " cents");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Void>[] newResults(int size) {
+        return (CompletableFuture<Void>[]) new CompletableFuture<?>[size];
     }
 }
@@ -1,7 +1,72 @@
 package com.designpattern.structural.adapter;
 
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Local stand-in for the Stripe API. Created with a round trip and a connection limit, every call waits for a free
+connection and then for the round trip instead of printing, the way a remote gateway limits throughput.
+ */
 public class StripePaymentGateway {
+    private final Duration roundTrip;
+    private final Semaphore connections;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong payments = new AtomicLong();
+    private final AtomicLong totalCents = new AtomicLong();
+
+    public StripePaymentGateway() {
+        this.roundTrip = null;
+        this.connections = null;
+    }
+
+    public StripePaymentGateway(Duration roundTrip, int maxConnections) {
+        this.roundTrip = roundTrip;
+        this.connections = new Semaphore(maxConnections);
+    }
+
+    // The gateway's original dollar API, rounded to cents
     void makePayment(double amount) {
-        System.out.printf("Processing payment of %f via Stripe.", amount);
+        makePayment(Math.round(amount * 100));
+    }
+
+    void makePayment(long amountCents) {
+        makeBatchPayment(new long[]{amountCents}, 1);
+    }
+
+    // One request carrying the first count amounts
+    void makeBatchPayment(long[] amountsCents, int count) {
+        if (roundTrip == null) {
+            for (int i = 0; i < count; i++)
+                System.out.printf("Processing payment of %d.%02d via Stripe.", amountsCents[i] / 100, amountsCents[i] % 100);
+        } else {
+            connections.acquireUninterruptibly();
+            try {
+                Thread.sleep(roundTrip);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted during Stripe request", e);
+            } finally {
+                connections.release();
+            }
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++)
+            sum += amountsCents[i];
+        calls.incrementAndGet();
+        payments.addAndGet(count);
+        totalCents.addAndGet(sum);
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public long payments() {
+        return payments.get();
+    }
+
+    public long totalCents() {
+        return totalCents.get();
     }
 }
@@ -2,6 +2,11 @@ package com.designpattern.structural.bridge;
 
 interface Color {
     void apply();
+
+    // Colors with equal state keys look the same when applied; the default treats every instance as distinct
+    default Object stateKey() {
+        return this;
+    }
 }
 
 class Red implements Color {
@@ -10,6 +15,11 @@ class Red implements Color {
     public void apply() {
         System.out.println("Applying Red Color");
     }
+
+    @Override
+    public Object stateKey() {
+        return Red.class;
+    }
 }
 
 class Green implements Color {
@@ -18,13 +28,34 @@ class Green implements Color {
     public void apply() {
         System.out.println("Applying Green Color");
     }
+
+    @Override
+    public Object stateKey() {
+        return Green.class;
+    }
+}
+// Color implementors hold no state, so every shape can share these instances
+final class Colors {
+    static final Color RED = new Red();
+    static final Color GREEN = new Green();
+
+    private Colors() {
+    }
 }
+
 abstract class Shape {
     protected Color color;
     public Shape(Color color) {
         this.color = color;
     }
-    abstract void draw();
+
+    // Draws the outline only; the color is applied by draw() or, batched, by a RenderQueue
+    abstract void render();
+
+    void draw() {
+        render();
+        color.apply();
+    }
 }
 class Circle extends Shape {
 
@@ -33,9 +64,8 @@ class Circle extends Shape {
     }
 
     @Override
-    void draw() {
+    void render() {
         System.out.println("Drawing circle ");
-        color.apply();
     }
 }
 
@@ -46,19 +76,26 @@ class Rectangle extends Shape {
     }
 
     @Override
-    void draw() {
+    void render() {
         System.out.println("Drawing Rectangle ");
-        color.apply();
     }
 }
 
 public class BridgePatternDemo {
     public static void main(String[] args) {
-        Circle redCircle = new Circle(new Red());
+        Circle redCircle = new Circle(Colors.RED);
         redCircle.draw();
-        Circle greenCircle = new Circle(new Green());
+        Circle greenCircle = new Circle(Colors.GREEN);
         greenCircle.draw();
-        Rectangle rectangle = new Rectangle(new Green());
+        Rectangle rectangle = new Rectangle(Colors.GREEN);
         rectangle.draw();
+
+        RenderQueue queue = new RenderQueue();
+        queue.submit(greenCircle, 0);
+        queue.submit(redCircle, 0);
+        queue.submit(rectangle, 1);
+        queue.submit(new Circle(Colors.RED), 2);
+        queue.submit(new Rectangle(new Red()), 3);
+        System.out.println("Color changes in queued frame: " + queue.flush());
     }
 }
@@ -0,0 +1,124 @@
+package com.designpattern.structural.bridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Records draws for a frame instead of drawing them right away. Each draw becomes one long sort key:
+
+    bits 56-63 color implementor id, 48-55 shape class id, 32-47 depth, 0-31 submission index
+
+flush() radix sorts the keys and replays them, calling Color.apply() only when the implementor changes,
+so each color is applied once per batch instead of once per shape. Within a batch shapes of the same class are
+drawn together, then by depth, then in submission order. Sorting by color ahead of depth assumes opaque shapes
+with a depth test, as with any state-sorted renderer.
+
+Colors are told apart by Color.stateKey(): by default each instance is its own state, while stateless implementors
+such as Red report their class, so shapes that each carry their own new Red() still share one apply() per batch.
+Ids are handed out per frame and forgotten by flush(), so at most 256 distinct color states fit in one frame.
+ */
+class RenderQueue {
+
+    static final int MAX_DEPTH = 0xFFFF;
+    private static final int MAX_IDS = 256;
+
+    private final Map<Object, Integer> colorIds = new HashMap<>();
+    private final List<Color> colors = new ArrayList<>();
+    private final Map<Class<?>, Integer> shapeIds = new HashMap<>();
+    private Shape[] shapes = new Shape[1024];
+    private long[] keys = new long[1024];
+    private long[] scratch = new long[1024];
+    private int size;
+
+    public void submit(Shape shape, int depth) {
+        if (depth < 0 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth must be between 0 and " + MAX_DEPTH);
+        if (size == shapes.length) {
+            shapes = Arrays.copyOf(shapes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            scratch = new long[size * 2];
+        }
+        long color = colorId(shape.color);
+        long kind = shapeId(shape.getClass());
+        keys[size] = color << 56 | kind << 48 | (long) depth << 32 | size;
+        shapes[size++] = shape;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Draws everything submitted since the last flush and returns how many times a color was applied
+    public int flush() {
+        sortByUpperHalf(keys, scratch, size);
+        int stateChanges = 0;
+        long current = -1;
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            long color = key >>> 56;
+            Shape shape = shapes[(int) key];
+            if (color != current) {
+                colors.get((int) color).apply();
+                current = color;
+                stateChanges++;
+            }
+            shape.render();
+        }
+        Arrays.fill(shapes, 0, size, null);
+        size = 0;
+        colors.clear();
+        colorIds.clear();
+        return stateChanges;
+    }
+
+    private int colorId(Color color) {
+        Object state = color.stateKey();
+        Integer id = colorIds.get(state);
+        if (id == null) {
+            if (colors.size() == MAX_IDS)
+                throw new IllegalStateException("RenderQueue supports at most " + MAX_IDS + " color states per frame");
+            id = colors.size();
+            colors.add(color);
+            colorIds.put(state, id);
+        }
+        return id;
+    }
+
+    private int shapeId(Class<?> type) {
+        Integer id = shapeIds.get(type);
+        if (id == null) {
+            if (shapeIds.size() == MAX_IDS)
+                throw new IllegalStateException("RenderQueue supports at most " + MAX_IDS + " shape classes");
+            id = shapeIds.size();
+            shapeIds.put(type, id);
+        }
+        return id;
+    }
+
+    // Stable LSD radix sort on bits 32-63 in two 16-bit passes. The low half is the submission index,
+    // which is already ascending, so stability is enough to keep ties in submission order.
+    private static void sortByUpperHalf(long[] keys, long[] scratch, int size) {
+        int[] counts = new int[1 << 16];
+        long[] from = keys, to = scratch;
+        for (int shift = 32; shift < 64; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++)
+                counts[(int) (from[i] >>> shift) & 0xFFFF]++;
+            int total = 0;
+            for (int digit = 0; digit < counts.length; digit++) {
+                int count = counts[digit];
+                counts[digit] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++)
+                to[counts[(int) (from[i] >>> shift) & 0xFFFF]++] = from[i];
+            long[] swap = from;
+            from = to;
+            to = swap;
+        }
+        // an even number of passes leaves the result back in keys
+    }
+}
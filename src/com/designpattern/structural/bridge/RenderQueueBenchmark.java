@@ -0,0 +1,113 @@
+package com.designpattern.structural.bridge;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+Draws a frame of 1M shapes (pass another count as the first argument) in random color order, first immediately
+through Shape.draw() and then through a RenderQueue, and reports how often a color was applied and the frame time.
+The shapes here do almost nothing instead of printing, while applying a color copies a 4 KB block, so a switch
+costs far more than a draw, as it does in a real renderer. The queued time includes submitting and sorting.
+ */
+public class RenderQueueBenchmark {
+
+    private static final int COLORS = 8;
+    private static final int DEPTHS = 64;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        CountingColor[] colors = new CountingColor[COLORS];
+        for (int i = 0; i < COLORS; i++)
+            colors[i] = new CountingColor(i);
+        Random random = new Random(5);
+        Shape[] scene = new Shape[count];
+        int[] depths = new int[count];
+        for (int i = 0; i < count; i++) {
+            Color color = colors[random.nextInt(COLORS)];
+            scene[i] = random.nextBoolean() ? new QuietCircle(color) : new QuietRectangle(color);
+            depths[i] = random.nextInt(DEPTHS);
+        }
+
+        RenderQueue queue = new RenderQueue();
+        for (int run = 1; run <= 5; run++) {
+            reset(colors);
+            long start = System.nanoTime();
+            for (Shape shape : scene)
+                shape.draw();
+            long immediateNanos = System.nanoTime() - start;
+            long immediateChanges = applied(colors);
+
+            reset(colors);
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++)
+                queue.submit(scene[i], depths[i]);
+            int queuedChanges = queue.flush();
+            long queuedNanos = System.nanoTime() - start;
+
+            System.out.printf("Run %d: immediate %d color changes in %.1f ms, queued %d color changes in %.1f ms (%.0fx fewer)%n",
+                    run, immediateChanges, immediateNanos / 1e6, queuedChanges, queuedNanos / 1e6,
+                    (double) immediateChanges / queuedChanges);
+        }
+        System.out.println("Checksum " + QuietShape.sink);
+    }
+
+    private static void reset(CountingColor[] colors) {
+        for (CountingColor color : colors)
+            color.applied = 0;
+    }
+
+    private static long applied(CountingColor[] colors) {
+        long total = 0;
+        for (CountingColor color : colors)
+            total += color.applied;
+        return total;
+    }
+
+    private static final class CountingColor implements Color {
+        // stands in for the constants a real implementor would upload on every switch
+        private final int[] palette = new int[1024];
+        private final int[] bound = new int[1024];
+        long applied;
+
+        CountingColor(int seed) {
+            Arrays.fill(palette, seed);
+        }
+
+        @Override
+        public void apply() {
+            applied++;
+            System.arraycopy(palette, 0, bound, 0, palette.length);
+            QuietShape.sink += bound[(int) (applied & 1023)];
+        }
+    }
+
+    private abstract static class QuietShape extends Shape {
+        static long sink;
+
+        QuietShape(Color color) {
+            super(color);
+        }
+    }
+
+    private static final class QuietCircle extends QuietShape {
+        QuietCircle(Color color) {
+            super(color);
+        }
+
+        @Override
+        void render() {
+            sink += 3;
+        }
+    }
+
+    private static final class QuietRectangle extends QuietShape {
+        QuietRectangle(Color color) {
+            super(color);
+        }
+
+        @Override
+        void render() {
+            sink += 4;
+        }
+    }
+}
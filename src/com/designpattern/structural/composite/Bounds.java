@@ -0,0 +1,63 @@
+package com.designpattern.structural.composite;
+
+// Axis-aligned bounding box, immutable
+final class Bounds {
+    static final Bounds EMPTY = new Bounds(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+
+    final float minX;
+    final float minY;
+    final float maxX;
+    final float maxY;
+
+    Bounds(float minX, float minY, float maxX, float maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    boolean isEmpty() {
+        return minX > maxX || minY > maxY;
+    }
+
+    Bounds union(Bounds other) {
+        if (other.isEmpty())
+            return this;
+        if (isEmpty())
+            return other;
+        return new Bounds(Math.min(minX, other.minX), Math.min(minY, other.minY),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+    }
+
+    boolean intersects(Bounds other) {
+        return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+    }
+
+    boolean contains(float x, float y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Bounds other))
+            return false;
+        return Float.compare(minX, other.minX) == 0 && Float.compare(minY, other.minY) == 0
+                && Float.compare(maxX, other.maxX) == 0 && Float.compare(maxY, other.maxY) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.hashCode(minX);
+        result = 31 * result + Float.hashCode(minY);
+        result = 31 * result + Float.hashCode(maxX);
+        return 31 * result + Float.hashCode(maxY);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bounds [ %.1f, %.1f -> %.1f, %.1f ]", minX, minY, maxX, maxY);
+    }
+}
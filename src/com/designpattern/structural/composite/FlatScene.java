@@ -0,0 +1,352 @@
+package com.designpattern.structural.composite;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+/*
+Scene tree stored as columns of primitives instead of one object per node: node kind, first child and next sibling
+indices, and position and size. Nodes are numbered depth first, so every subtree is a contiguous range of indices
+and drawing it is a single forward pass over the arrays. FlatSceneBuilder collects nodes in any order and build()
+renumbers them. FlatGraphic wraps a node so the scene can be used wherever a Graphic is expected.
+ */
+abstract class FlatScene {
+    static final int GROUP = 2;
+    static final int NONE = -1;
+
+    abstract int size();
+    abstract int kind(int node);
+    abstract int firstChild(int node);
+    abstract int nextSibling(int node);
+    abstract float x(int node);
+    abstract float y(int node);
+    abstract float shapeSize(int node);
+    abstract void setPosition(int node, float x, float y);
+    abstract long bytes();
+
+    void draw(DrawList out) {
+        if (size() > 0)
+            draw(0, out);
+    }
+
+    void draw(int node, DrawList out) {
+        int end = subtreeEnd(node);
+        for (int i = node; i < end; i++) {
+            int kind = kind(i);
+            if (kind != GROUP)
+                out.add(kind, x(i), y(i), shapeSize(i));
+        }
+    }
+
+    // One past the last descendant, found by following the last child down
+    int subtreeEnd(int node) {
+        int last = node;
+        while (firstChild(last) != NONE) {
+            int child = firstChild(last);
+            while (nextSibling(child) != NONE)
+                child = nextSibling(child);
+            last = child;
+        }
+        return last + 1;
+    }
+
+    Graphic graphic(int node) {
+        return new FlatGraphic(this, node);
+    }
+}
+
+final class HeapFlatScene extends FlatScene {
+    private final byte[] kinds;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] sizes;
+
+    HeapFlatScene(byte[] kinds, int[] firstChildren, int[] nextSiblings, float[] xs, float[] ys, float[] sizes) {
+        this.kinds = kinds;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.xs = xs;
+        this.ys = ys;
+        this.sizes = sizes;
+    }
+
+    @Override
+    int size() {
+        return kinds.length;
+    }
+
+    @Override
+    int kind(int node) {
+        return kinds[node];
+    }
+
+    @Override
+    int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    @Override
+    int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    @Override
+    float x(int node) {
+        return xs[node];
+    }
+
+    @Override
+    float y(int node) {
+        return ys[node];
+    }
+
+    @Override
+    float shapeSize(int node) {
+        return sizes[node];
+    }
+
+    @Override
+    void setPosition(int node, float x, float y) {
+        xs[node] = x;
+        ys[node] = y;
+    }
+
+    @Override
+    long bytes() {
+        return (long) size() * (Byte.BYTES + 2 * Integer.BYTES + 3 * Float.BYTES);
+    }
+
+    // Reads the arrays directly so the loop does not depend on the accessors being inlined
+    @Override
+    void draw(int node, DrawList out) {
+        int end = subtreeEnd(node);
+        out.ensureCapacity(out.size() + end - node);
+        for (int i = node; i < end; i++) {
+            if (kinds[i] != GROUP)
+                out.add(kinds[i], xs[i], ys[i], sizes[i]);
+        }
+    }
+
+    // Copies the columns into native memory owned by the arena, outside the garbage collected heap
+    OffHeapFlatScene toOffHeap(Arena arena) {
+        OffHeapFlatScene scene = new OffHeapFlatScene(arena, size());
+        for (int i = 0; i < size(); i++)
+            scene.set(i, kinds[i], firstChildren[i], nextSiblings[i], xs[i], ys[i], sizes[i]);
+        return scene;
+    }
+}
+
+/*
+Same columns as HeapFlatScene laid out one after another in a single MemorySegment.
+The segment lives as long as its arena, and a confined arena only allows access from the thread that created it.
+ */
+final class OffHeapFlatScene extends FlatScene {
+    private final MemorySegment segment;
+    private final int size;
+    private final long firstChildOffset;
+    private final long nextSiblingOffset;
+    private final long xOffset;
+    private final long yOffset;
+    private final long sizeOffset;
+
+    OffHeapFlatScene(Arena arena, int size) {
+        this.size = size;
+        firstChildOffset = (size + 7L) & ~7L;
+        nextSiblingOffset = firstChildOffset + 4L * size;
+        xOffset = nextSiblingOffset + 4L * size;
+        yOffset = xOffset + 4L * size;
+        sizeOffset = yOffset + 4L * size;
+        segment = arena.allocate(sizeOffset + 4L * size, 8);
+    }
+
+    void set(int node, byte kind, int firstChild, int nextSibling, float x, float y, float shapeSize) {
+        segment.set(ValueLayout.JAVA_BYTE, node, kind);
+        segment.set(ValueLayout.JAVA_INT, firstChildOffset + 4L * node, firstChild);
+        segment.set(ValueLayout.JAVA_INT, nextSiblingOffset + 4L * node, nextSibling);
+        segment.set(ValueLayout.JAVA_FLOAT, xOffset + 4L * node, x);
+        segment.set(ValueLayout.JAVA_FLOAT, yOffset + 4L * node, y);
+        segment.set(ValueLayout.JAVA_FLOAT, sizeOffset + 4L * node, shapeSize);
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int kind(int node) {
+        return segment.get(ValueLayout.JAVA_BYTE, node);
+    }
+
+    @Override
+    int firstChild(int node) {
+        return segment.get(ValueLayout.JAVA_INT, firstChildOffset + 4L * node);
+    }
+
+    @Override
+    int nextSibling(int node) {
+        return segment.get(ValueLayout.JAVA_INT, nextSiblingOffset + 4L * node);
+    }
+
+    @Override
+    float x(int node) {
+        return segment.get(ValueLayout.JAVA_FLOAT, xOffset + 4L * node);
+    }
+
+    @Override
+    float y(int node) {
+        return segment.get(ValueLayout.JAVA_FLOAT, yOffset + 4L * node);
+    }
+
+    @Override
+    float shapeSize(int node) {
+        return segment.get(ValueLayout.JAVA_FLOAT, sizeOffset + 4L * node);
+    }
+
+    @Override
+    void setPosition(int node, float x, float y) {
+        segment.set(ValueLayout.JAVA_FLOAT, xOffset + 4L * node, x);
+        segment.set(ValueLayout.JAVA_FLOAT, yOffset + 4L * node, y);
+    }
+
+    @Override
+    long bytes() {
+        return segment.byteSize();
+    }
+}
+
+class FlatSceneBuilder {
+    private byte[] kinds = new byte[64];
+    private int[] parents = new int[64];
+    private int[] firstChildren = new int[64];
+    private int[] lastChildren = new int[64];
+    private int[] nextSiblings = new int[64];
+    private float[] xs = new float[64];
+    private float[] ys = new float[64];
+    private float[] sizes = new float[64];
+    private int count;
+
+    // Pass FlatScene.NONE as the parent for the root, which has to be the first node added
+    public int addGroup(int parent) {
+        return add(parent, FlatScene.GROUP, 0, 0, 0);
+    }
+
+    public int addShape(int parent, int kind, float x, float y, float size) {
+        if (kind == FlatScene.GROUP)
+            throw new IllegalArgumentException("Use addGroup for groups");
+        return add(parent, kind, x, y, size);
+    }
+
+    private int add(int parent, int kind, float x, float y, float size) {
+        if ((parent == FlatScene.NONE) != (count == 0))
+            throw new IllegalArgumentException("The first node is the root and every other node needs a parent");
+        if (parent != FlatScene.NONE && (parent >= count || kinds[parent] != FlatScene.GROUP))
+            throw new IllegalArgumentException("Parent " + parent + " is not a group");
+        if (count == kinds.length)
+            grow();
+        int node = count++;
+        kinds[node] = (byte) kind;
+        parents[node] = parent;
+        firstChildren[node] = FlatScene.NONE;
+        lastChildren[node] = FlatScene.NONE;
+        nextSiblings[node] = FlatScene.NONE;
+        xs[node] = x;
+        ys[node] = y;
+        sizes[node] = size;
+        if (parent != FlatScene.NONE) {
+            if (lastChildren[parent] == FlatScene.NONE)
+                firstChildren[parent] = node;
+            else
+                nextSiblings[lastChildren[parent]] = node;
+            lastChildren[parent] = node;
+        }
+        return node;
+    }
+
+    // Renumbers the nodes depth first so each subtree occupies a contiguous range
+    public HeapFlatScene build() {
+        int[] renumbered = new int[count];
+        int next = 0;
+        int node = count == 0 ? FlatScene.NONE : 0;
+        while (node != FlatScene.NONE) {
+            renumbered[node] = next++;
+            if (firstChildren[node] != FlatScene.NONE) {
+                node = firstChildren[node];
+                continue;
+            }
+            while (node != FlatScene.NONE && nextSiblings[node] == FlatScene.NONE)
+                node = parents[node];
+            if (node != FlatScene.NONE)
+                node = nextSiblings[node];
+        }
+        byte[] outKinds = new byte[count];
+        int[] outFirst = new int[count];
+        int[] outNext = new int[count];
+        float[] outX = new float[count];
+        float[] outY = new float[count];
+        float[] outSize = new float[count];
+        for (int i = 0; i < count; i++) {
+            int p = renumbered[i];
+            outKinds[p] = kinds[i];
+            outFirst[p] = firstChildren[i] == FlatScene.NONE ? FlatScene.NONE : renumbered[firstChildren[i]];
+            outNext[p] = nextSiblings[i] == FlatScene.NONE ? FlatScene.NONE : renumbered[nextSiblings[i]];
+            outX[p] = xs[i];
+            outY[p] = ys[i];
+            outSize[p] = sizes[i];
+        }
+        return new HeapFlatScene(outKinds, outFirst, outNext, outX, outY, outSize);
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+    }
+}
+
+// Graphic view of one node of a FlatScene, created on demand
+class FlatGraphic implements Graphic {
+    private final FlatScene scene;
+    private final int node;
+
+    FlatGraphic(FlatScene scene, int node) {
+        this.scene = scene;
+        this.node = node;
+    }
+
+    @Override
+    public void draw() {
+        DrawList list = new DrawList();
+        scene.draw(node, list);
+        for (int i = 0; i < list.size(); i++)
+            System.out.println(list.kind(i) == DrawList.CIRCLE ? "Drawing Circle" : "Drawing Square");
+    }
+
+    @Override
+    public Bounds getBounds() {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        int end = scene.subtreeEnd(node);
+        for (int i = node; i < end; i++) {
+            int kind = scene.kind(i);
+            if (kind == FlatScene.GROUP)
+                continue;
+            float x = scene.x(i), y = scene.y(i), size = scene.shapeSize(i);
+            // same convention as ShapeNode: circles by centre, squares by top left corner
+            minX = Math.min(minX, kind == DrawList.CIRCLE ? x - size : x);
+            minY = Math.min(minY, kind == DrawList.CIRCLE ? y - size : y);
+            maxX = Math.max(maxX, x + size);
+            maxY = Math.max(maxY, y + size);
+        }
+        return minX > maxX ? Bounds.EMPTY : new Bounds(minX, minY, maxX, maxY);
+    }
+}
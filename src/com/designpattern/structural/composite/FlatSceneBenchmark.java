@@ -0,0 +1,114 @@
+package com.designpattern.structural.composite;
+
+import java.lang.foreign.Arena;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+Builds the same scene (1M shapes by default, 16 children per group) as an object tree of GroupNode/ShapeNode
+and as a FlatScene on and off the heap, then reports bytes per node and the time of a full depth-first draw.
+ */
+public class FlatSceneBenchmark {
+
+    public static void main(String[] args) {
+        int shapes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int fanout = 16;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        long before = usedHeap(memory);
+        GroupNode objectTree = buildObjectTree(shapes, fanout, new Random(3));
+        long objectBytes = usedHeap(memory) - before;
+
+        before = usedHeap(memory);
+        HeapFlatScene flat = buildFlatScene(shapes, fanout, new Random(3));
+        long flatBytes = usedHeap(memory) - before;
+        int nodes = flat.size();
+
+        try (Arena arena = Arena.ofConfined()) {
+            OffHeapFlatScene offHeap = flat.toOffHeap(arena);
+            System.out.printf("%d nodes: object tree %.1f bytes/node, flat heap %.1f bytes/node, off-heap %.1f bytes/node (no GC heap)%n",
+                    nodes, (double) objectBytes / nodes, (double) flatBytes / nodes, (double) offHeap.bytes() / nodes);
+
+            DrawList out = new DrawList();
+            out.ensureCapacity(shapes);
+            for (int run = 1; run <= 5; run++) {
+                out.clear();
+                long start = System.nanoTime();
+                objectTree.renderFull(out);
+                long objectNanos = System.nanoTime() - start;
+                double objectChecksum = checksum(out);
+
+                out.clear();
+                start = System.nanoTime();
+                flat.draw(out);
+                long flatNanos = System.nanoTime() - start;
+                double flatChecksum = checksum(out);
+
+                out.clear();
+                start = System.nanoTime();
+                offHeap.draw(out);
+                long offHeapNanos = System.nanoTime() - start;
+                double offHeapChecksum = checksum(out);
+
+                System.out.printf("Run %d: object tree %.2f ns/node, flat heap %.2f ns/node, off-heap %.2f ns/node, %s%n",
+                        run, (double) objectNanos / nodes, (double) flatNanos / nodes, (double) offHeapNanos / nodes,
+                        objectChecksum == flatChecksum && flatChecksum == offHeapChecksum ? "same output" : "OUTPUT DIFFERS");
+            }
+            System.out.println("Scene " + flat.graphic(0).getBounds() + ", object tree " + objectTree.getBounds());
+        }
+    }
+
+    private static GroupNode buildObjectTree(int shapes, int fanout, Random random) {
+        List<SceneNode> level = new ArrayList<>(shapes);
+        for (int i = 0; i < shapes; i++)
+            level.add(new ShapeNode(i % 2, random.nextFloat() * 10_000, random.nextFloat() * 10_000, 1 + random.nextFloat() * 5));
+        while (level.size() > 1 || level.get(0) instanceof ShapeNode) {
+            List<SceneNode> parents = new ArrayList<>(level.size() / fanout + 1);
+            for (int i = 0; i < level.size(); i += fanout) {
+                GroupNode group = new GroupNode();
+                for (int j = i; j < Math.min(i + fanout, level.size()); j++)
+                    group.add(level.get(j));
+                parents.add(group);
+            }
+            level = parents;
+        }
+        return (GroupNode) level.get(0);
+    }
+
+    // Same shapes in the same order as buildObjectTree, grouped the same way
+    private static HeapFlatScene buildFlatScene(int shapes, int fanout, Random random) {
+        int groupSize = 1;
+        while ((long) groupSize * fanout < shapes)
+            groupSize *= fanout;
+        FlatSceneBuilder builder = new FlatSceneBuilder();
+        int root = builder.addGroup(FlatScene.NONE);
+        int[] path = new int[64];
+        for (int i = 0; i < shapes; i++) {
+            int parent = root;
+            int depth = 0;
+            for (int span = groupSize; span >= fanout; span /= fanout) {
+                if (i % span == 0)
+                    path[depth] = builder.addGroup(parent);
+                parent = path[depth++];
+            }
+            builder.addShape(parent, i % 2, random.nextFloat() * 10_000, random.nextFloat() * 10_000, 1 + random.nextFloat() * 5);
+        }
+        return builder.build();
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static double checksum(DrawList list) {
+        double sum = list.size();
+        for (int i = 0; i < list.size(); i++)
+            sum += list.x(i) * (i % 7) + list.y(i) + list.kind(i);
+        return sum;
+    }
+}
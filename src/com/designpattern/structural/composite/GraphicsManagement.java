@@ -1,37 +1,128 @@
 package com.designpattern.structural.composite;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 interface Graphic {
     void draw();
+    Bounds getBounds();
+
+    default boolean contains(float x, float y) {
+        return getBounds().contains(x, y);
+    }
 }
 class Circle implements Graphic {
 
+    private final float x;
+    private final float y;
+    private final float radius;
+
+    public Circle() {
+        this(0, 0, 1);
+    }
+
+    public Circle(float x, float y, float radius) {
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+    }
+
     @Override
     public void draw() {
         System.out.println("Drawing Circle");
     }
+
+    @Override
+    public Bounds getBounds() {
+        return new Bounds(x - radius, y - radius, x + radius, y + radius);
+    }
+
+    @Override
+    public boolean contains(float px, float py) {
+        float dx = px - x, dy = py - y;
+        return dx * dx + dy * dy <= radius * radius;
+    }
 }
 
 class Square implements Graphic {
 
+    private final float x;
+    private final float y;
+    private final float side;
+
+    public Square() {
+        this(0, 0, 1);
+    }
+
+    public Square(float x, float y, float side) {
+        this.x = x;
+        this.y = y;
+        this.side = side;
+    }
+
     @Override
     public void draw() {
         System.out.println("Drawing Square");
     }
+
+    @Override
+    public Bounds getBounds() {
+        return new Bounds(x, y, x + side, y + side);
+    }
 }
 
+/*
+Children are kept in an insertion-ordered set for drawing order and, once a spatial query is made, in an R-tree
+as well, so draw(viewport) and hitTest(x, y) only look at children near the query instead of all of them.
+A graphic is a child at most once: adding one that is already there does nothing.
+The index is bulk loaded from the set on first use and then kept up to date by add and remove.
+A composite can belong to one parent, which is told when the composite's bounds change.
+ */
 class CompositeGraphic implements Graphic {
 
-    private List<Graphic> graphics = new ArrayList<>();
+    // insertion ordered for draw(), and O(1) remove which a list cannot offer at millions of children
+    private Set<Graphic> graphics = new LinkedHashSet<>();
+    private RTree<Graphic> index;
+    private long nextOrder;
+    private CompositeGraphic parent;
 
     public void add(Graphic graphic) {
-        graphics.add(graphic);
+        if (attach(graphic) && index != null) {
+            Bounds before = index.getBounds();
+            index.insert(graphic, graphic.getBounds(), nextOrder++);
+            boundsChanged(before);
+        }
+    }
+
+    // Large batches rebuild the index with a bulk load instead of inserting one by one
+    public void addAll(List<? extends Graphic> newGraphics) {
+        if (index == null || newGraphics.size() < index.size()) {
+            for (Graphic graphic : newGraphics)
+                add(graphic);
+            return;
+        }
+        Bounds before = index.getBounds();
+        for (Graphic graphic : newGraphics)
+            attach(graphic);
+        index = null;
+        index();
+        boundsChanged(before);
     }
 
     public void remove(Graphic graphic) {
-        graphics.remove(graphic);
+        if (!graphics.remove(graphic))
+            return;
+        if (graphic instanceof CompositeGraphic composite)
+            composite.parent = null;
+        if (index != null) {
+            Bounds before = index.getBounds();
+            index.remove(graphic, graphic.getBounds());
+            boundsChanged(before);
+        }
     }
 
     @Override
@@ -39,6 +130,95 @@ class CompositeGraphic implements Graphic {
         for(Graphic graphic : graphics)
             graphic.draw();
     }
+
+    // Draws only the shapes that intersect the viewport, in the same order as draw()
+    public void draw(Bounds viewport) {
+        visit(viewport, Graphic::draw);
+    }
+
+    public void visit(Bounds viewport, Consumer<Graphic> action) {
+        for (Graphic graphic : candidates(viewport, false)) {
+            if (graphic instanceof CompositeGraphic composite)
+                composite.visit(viewport, action);
+            else
+                action.accept(graphic);
+        }
+    }
+
+    // The top-most shape at the point, that is the last one draw() would paint there, or null
+    public Graphic hitTest(float x, float y) {
+        for (Graphic graphic : candidates(new Bounds(x, y, x, y), true)) {
+            if (graphic instanceof CompositeGraphic composite) {
+                Graphic hit = composite.hitTest(x, y);
+                if (hit != null)
+                    return hit;
+            } else if (graphic.contains(x, y)) {
+                return graphic;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return index().getBounds();
+    }
+
+    @Override
+    public boolean contains(float x, float y) {
+        return hitTest(x, y) != null;
+    }
+
+    private List<Graphic> candidates(Bounds query, boolean topFirst) {
+        List<Candidate> found = new ArrayList<>();
+        index().search(query, (graphic, order) -> found.add(new Candidate(graphic, order)));
+        found.sort(topFirst ? Comparator.comparingLong(Candidate::order).reversed() : Comparator.comparingLong(Candidate::order));
+        List<Graphic> sorted = new ArrayList<>(found.size());
+        for (Candidate candidate : found)
+            sorted.add(candidate.graphic());
+        return sorted;
+    }
+
+    private record Candidate(Graphic graphic, long order) {
+    }
+
+    private boolean attach(Graphic graphic) {
+        if (graphics.contains(graphic))
+            return false;
+        if (graphic instanceof CompositeGraphic composite) {
+            if (composite.parent != null)
+                throw new IllegalStateException("Composite already belongs to another composite");
+            composite.parent = this;
+        }
+        graphics.add(graphic);
+        return true;
+    }
+
+    private RTree<Graphic> index() {
+        if (index == null) {
+            List<Graphic> ordered = new ArrayList<>(graphics);
+            List<Bounds> bounds = new ArrayList<>(ordered.size());
+            for (Graphic graphic : ordered)
+                bounds.add(graphic.getBounds());
+            index = RTree.bulkLoad(ordered, bounds);
+            nextOrder = graphics.size();
+        }
+        return index;
+    }
+
+    private void boundsChanged(Bounds before) {
+        if (parent != null && !before.equals(index.getBounds()))
+            parent.childBoundsChanged(this, before);
+    }
+
+    private void childBoundsChanged(CompositeGraphic child, Bounds oldBounds) {
+        if (index == null)
+            return;
+        Bounds before = index.getBounds();
+        long order = index.remove(child, oldBounds);
+        index.insert(child, child.getBounds(), order);
+        boundsChanged(before);
+    }
 }
 
 
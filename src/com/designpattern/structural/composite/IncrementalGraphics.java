@@ -0,0 +1,304 @@
+package com.designpattern.structural.composite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+Flat list of draw commands, four floats per command (kind, x, y, size).
+ */
+final class DrawList {
+    static final int CIRCLE = 0;
+    static final int SQUARE = 1;
+
+    private float[] data = new float[64];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int kind(int command) {
+        return (int) data[command * 4];
+    }
+
+    float x(int command) {
+        return data[command * 4 + 1];
+    }
+
+    float y(int command) {
+        return data[command * 4 + 2];
+    }
+
+    float shapeSize(int command) {
+        return data[command * 4 + 3];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void ensureCapacity(int commands) {
+        if (data.length < commands * 4)
+            data = Arrays.copyOf(data, Math.max(commands * 4, data.length * 2));
+    }
+
+    void add(int kind, float x, float y, float shapeSize) {
+        ensureCapacity(size + 1);
+        int i = size++ * 4;
+        data[i] = kind;
+        data[i + 1] = x;
+        data[i + 2] = y;
+        data[i + 3] = shapeSize;
+    }
+
+    void set(int command, int kind, float x, float y, float shapeSize) {
+        int i = command * 4;
+        data[i] = kind;
+        data[i + 1] = x;
+        data[i + 2] = y;
+        data[i + 3] = shapeSize;
+    }
+}
+
+/*
+Node of a scene that renders incrementally. The root group keeps one DrawList for the whole scene and every
+GroupNode caches its bounds and the range of that list its subtree occupies. Changing a shape marks only the path
+from it to the root dirty, and rendering rewrites the commands of dirty groups in place and recomputes their
+bounds, leaving clean subtrees alone. Adding or removing a node moves ranges, so it lays the scene out again.
+Mutations must not overlap with render().
+ */
+abstract class SceneNode implements Graphic {
+    GroupNode parent;
+
+    public abstract Bounds getBounds();
+
+    // Appends this subtree without using any cache, the way CompositeGraphic.draw() walks every child
+    abstract void renderFull(DrawList out);
+
+    protected void invalidate() {
+        if (parent != null)
+            parent.markDirty();
+    }
+}
+
+class ShapeNode extends SceneNode {
+    private final int kind;
+    private float x;
+    private float y;
+    private float size;
+
+    ShapeNode(int kind, float x, float y, float size) {
+        this.kind = kind;
+        this.x = x;
+        this.y = y;
+        this.size = size;
+    }
+
+    public void moveTo(float x, float y) {
+        this.x = x;
+        this.y = y;
+        invalidate();
+    }
+
+    public void resize(float size) {
+        this.size = size;
+        invalidate();
+    }
+
+    void appendTo(DrawList out) {
+        out.add(kind, x, y, size);
+    }
+
+    void writeTo(DrawList out, int command) {
+        out.set(command, kind, x, y, size);
+    }
+
+    // circles are positioned by their centre, squares by their top left corner
+    float minX() {
+        return kind == DrawList.CIRCLE ? x - size : x;
+    }
+
+    float minY() {
+        return kind == DrawList.CIRCLE ? y - size : y;
+    }
+
+    float maxX() {
+        return x + size;
+    }
+
+    float maxY() {
+        return y + size;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return new Bounds(minX(), minY(), maxX(), maxY());
+    }
+
+    @Override
+    void renderFull(DrawList out) {
+        appendTo(out);
+    }
+
+    @Override
+    public void draw() {
+        System.out.printf("Drawing %s at (%.1f, %.1f) size %.1f%n", kind == DrawList.CIRCLE ? "Circle" : "Square", x, y, size);
+    }
+}
+
+class GroupNode extends SceneNode {
+    // below this many nodes in dirty child groups it is cheaper to refresh them on the calling thread
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private final List<SceneNode> children = new ArrayList<>();
+    private DrawList commands;
+    private Bounds bounds = Bounds.EMPTY;
+    private int start;
+    private int end;
+    private int nodeCount = 1;
+    // a dirty group always has dirty ancestors, so marking can stop at the first one already dirty
+    private boolean dirty = true;
+    private boolean layoutDirty = true;
+
+    public void add(SceneNode node) {
+        if (node.parent != null)
+            throw new IllegalStateException("Node already belongs to a group");
+        node.parent = this;
+        children.add(node);
+        markLayoutDirty();
+    }
+
+    public void remove(SceneNode node) {
+        if (children.remove(node)) {
+            node.parent = null;
+            if (node instanceof GroupNode group)
+                group.layoutDirty = true;
+            markLayoutDirty();
+        }
+    }
+
+    void markDirty() {
+        for (GroupNode group = this; group != null && !group.dirty; group = group.parent)
+            group.dirty = true;
+    }
+
+    private void markLayoutDirty() {
+        markDirty();
+        GroupNode root = this;
+        while (root.parent != null)
+            root = root.parent;
+        root.layoutDirty = true;
+    }
+
+    // Draw commands of the whole scene, only valid on the root group
+    public DrawList render() {
+        if (parent != null)
+            throw new IllegalStateException("Only the root group can be rendered");
+        if (layoutDirty || commands == null) {
+            commands = new DrawList();
+            commands.ensureCapacity(nodeCount);
+            layout(commands);
+            layoutDirty = false;
+        } else {
+            refresh(commands);
+        }
+        return commands;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        GroupNode root = this;
+        while (root.parent != null)
+            root = root.parent;
+        root.render();
+        return bounds;
+    }
+
+    @Override
+    void renderFull(DrawList out) {
+        for (SceneNode child : children)
+            child.renderFull(out);
+    }
+
+    @Override
+    public void draw() {
+        DrawList list = render();
+        for (int i = 0; i < list.size(); i++)
+            System.out.printf("Drawing %s at (%.1f, %.1f) size %.1f%n",
+                    list.kind(i) == DrawList.CIRCLE ? "Circle" : "Square", list.x(i), list.y(i), list.shapeSize(i));
+    }
+
+    private void layout(DrawList out) {
+        start = out.size();
+        for (SceneNode child : children) {
+            if (child instanceof GroupNode group)
+                group.layout(out);
+            else
+                ((ShapeNode) child).appendTo(out);
+        }
+        end = out.size();
+        updateBounds();
+    }
+
+    private void refresh(DrawList out) {
+        if (!dirty)
+            return;
+        int dirtyGroups = 0;
+        int dirtyNodes = 0;
+        for (SceneNode child : children) {
+            if (child instanceof GroupNode group && group.dirty) {
+                dirtyGroups++;
+                dirtyNodes += group.nodeCount;
+            }
+        }
+        // sibling subtrees own disjoint ranges of the list, so they can be rewritten at the same time
+        if (dirtyGroups > 1 && dirtyNodes >= PARALLEL_THRESHOLD) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(dirtyGroups);
+            for (SceneNode child : children) {
+                if (child instanceof GroupNode group && group.dirty)
+                    tasks.add(ForkJoinTask.adapt(() -> group.refresh(out)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+        } else if (dirtyGroups > 0) {
+            for (SceneNode child : children) {
+                if (child instanceof GroupNode group)
+                    group.refresh(out);
+            }
+        }
+        int command = start;
+        for (SceneNode child : children) {
+            if (child instanceof GroupNode group)
+                command = group.end;
+            else
+                ((ShapeNode) child).writeTo(out, command++);
+        }
+        updateBounds();
+    }
+
+    private void updateBounds() {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        int count = 1;
+        for (SceneNode child : children) {
+            if (child instanceof GroupNode group) {
+                minX = Math.min(minX, group.bounds.minX);
+                minY = Math.min(minY, group.bounds.minY);
+                maxX = Math.max(maxX, group.bounds.maxX);
+                maxY = Math.max(maxY, group.bounds.maxY);
+                count += group.nodeCount;
+            } else {
+                ShapeNode shape = (ShapeNode) child;
+                minX = Math.min(minX, shape.minX());
+                minY = Math.min(minY, shape.minY());
+                maxX = Math.max(maxX, shape.maxX());
+                maxY = Math.max(maxY, shape.maxY());
+                count++;
+            }
+        }
+        bounds = minX > maxX ? Bounds.EMPTY : new Bounds(minX, minY, maxX, maxY);
+        nodeCount = count;
+        dirty = false;
+    }
+}
@@ -0,0 +1,79 @@
+package com.designpattern.structural.composite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+Builds a scene of 1M shapes (16 children per group) and redraws it after changing 1% of the shapes per frame,
+comparing a full walk of the tree with the incremental render of GroupNode.
+Changes are either scattered over the whole scene, which dirties most groups above the leaves,
+or clustered in one region of the tree, like a single animated object.
+The full walk only emits commands and does not recompute bounds, so it is the cheapest possible non-cached frame.
+Pass the number of shapes and the change rate in percent as arguments.
+ */
+public class IncrementalRenderingBenchmark {
+
+    public static void main(String[] args) {
+        int shapes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double changeRate = args.length > 1 ? Double.parseDouble(args[1]) / 100 : 0.01;
+        Random random = new Random(7);
+        List<ShapeNode> leaves = new ArrayList<>(shapes);
+        GroupNode root = build(shapes, 16, random, leaves);
+        DrawList full = new DrawList();
+        root.render();
+
+        int changes = (int) (shapes * changeRate);
+        for (int frame = 1; frame <= 20; frame++) {
+            boolean clustered = frame > 10;
+            int offset = random.nextInt(shapes - changes + 1);
+            for (int i = 0; i < changes; i++) {
+                ShapeNode shape = leaves.get(clustered ? offset + i : random.nextInt(shapes));
+                shape.moveTo(random.nextFloat() * 10_000, random.nextFloat() * 10_000);
+            }
+
+            long start = System.nanoTime();
+            full.clear();
+            root.renderFull(full);
+            long fullNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            DrawList incremental = root.render();
+            long incrementalNanos = System.nanoTime() - start;
+
+            System.out.printf("Frame %2d: %d %s changes, full walk %.2f ms, incremental %.2f ms, speedup %.1fx, %s%n",
+                    frame, changes, clustered ? "clustered" : "scattered",
+                    fullNanos / 1e6, incrementalNanos / 1e6, (double) fullNanos / incrementalNanos,
+                    checksum(full) == checksum(incremental) ? "same output" : "OUTPUT DIFFERS");
+        }
+        System.out.println("Scene " + root.getBounds());
+    }
+
+    private static GroupNode build(int shapes, int fanout, Random random, List<ShapeNode> leaves) {
+        List<SceneNode> level = new ArrayList<>(shapes);
+        for (int i = 0; i < shapes; i++) {
+            ShapeNode shape = new ShapeNode(i % 2 == 0 ? DrawList.CIRCLE : DrawList.SQUARE,
+                    random.nextFloat() * 10_000, random.nextFloat() * 10_000, 1 + random.nextFloat() * 5);
+            leaves.add(shape);
+            level.add(shape);
+        }
+        while (level.size() > 1) {
+            List<SceneNode> parents = new ArrayList<>(level.size() / fanout + 1);
+            for (int i = 0; i < level.size(); i += fanout) {
+                GroupNode group = new GroupNode();
+                for (int j = i; j < Math.min(i + fanout, level.size()); j++)
+                    group.add(level.get(j));
+                parents.add(group);
+            }
+            level = parents;
+        }
+        return (GroupNode) level.get(0);
+    }
+
+    private static double checksum(DrawList list) {
+        double sum = list.size();
+        for (int i = 0; i < list.size(); i++)
+            sum += list.x(i) * (i % 7) + list.y(i);
+        return sum;
+    }
+}
@@ -0,0 +1,353 @@
+package com.designpattern.structural.composite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+R-tree over items with a bounding box and an order number (the composite uses it for draw order).
+Boxes are stored in float arrays inside each node rather than as one object per item.
+bulkLoad packs a whole collection with Sort-Tile-Recursive; insert and remove keep the tree balanced afterwards,
+splitting nodes that overflow and re-inserting the entries of nodes that become too small.
+ */
+class RTree<T> {
+
+    interface Hit<T> {
+        void accept(T item, long order);
+    }
+
+    static final int MAX_ENTRIES = 16;
+    static final int MIN_ENTRIES = 6;
+
+    private Node root = new Node(true);
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    Bounds getBounds() {
+        if (root.size == 0)
+            return Bounds.EMPTY;
+        float[] box = root.box();
+        return new Bounds(box[0], box[1], box[2], box[3]);
+    }
+
+    static <T> RTree<T> bulkLoad(List<? extends T> items, List<Bounds> bounds) {
+        int n = items.size();
+        RTree<T> tree = new RTree<>();
+        if (n == 0)
+            return tree;
+        float[] minX = new float[n], minY = new float[n], maxX = new float[n], maxY = new float[n];
+        Object[] payload = new Object[n];
+        long[] orders = new long[n];
+        for (int i = 0; i < n; i++) {
+            Bounds b = bounds.get(i);
+            minX[i] = b.minX;
+            minY[i] = b.minY;
+            maxX[i] = b.maxX;
+            maxY[i] = b.maxY;
+            payload[i] = items.get(i);
+            orders[i] = i;
+        }
+        List<Node> level = pack(n, minX, minY, maxX, maxY, payload, orders, true);
+        while (level.size() > 1) {
+            int count = level.size();
+            minX = new float[count];
+            minY = new float[count];
+            maxX = new float[count];
+            maxY = new float[count];
+            payload = new Object[count];
+            for (int i = 0; i < count; i++) {
+                float[] box = level.get(i).box();
+                minX[i] = box[0];
+                minY[i] = box[1];
+                maxX[i] = box[2];
+                maxY[i] = box[3];
+                payload[i] = level.get(i);
+            }
+            level = pack(count, minX, minY, maxX, maxY, payload, null, false);
+        }
+        tree.root = level.get(0);
+        tree.size = n;
+        return tree;
+    }
+
+    void insert(T item, Bounds bounds, long order) {
+        Node leaf = root;
+        while (!leaf.leaf)
+            leaf = (Node) leaf.items[leaf.chooseChild(bounds)];
+        leaf.add(bounds.minX, bounds.minY, bounds.maxX, bounds.maxY, item, order);
+        size++;
+        adjustUpwards(leaf);
+    }
+
+    // Returns the order the item was inserted with, or -1 if it is not in the tree under these bounds
+    long remove(T item, Bounds bounds) {
+        Node leaf = findLeaf(root, item, bounds);
+        if (leaf == null)
+            return -1;
+        int slot = leaf.indexOf(item);
+        long order = leaf.orders[slot];
+        leaf.removeAt(slot);
+        size--;
+        condense(leaf);
+        return order;
+    }
+
+    void search(Bounds query, Hit<T> hit) {
+        if (root.size > 0)
+            search(root, query.minX, query.minY, query.maxX, query.maxY, hit);
+    }
+
+    void search(float x, float y, Hit<T> hit) {
+        if (root.size > 0)
+            search(root, x, y, x, y, hit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(Node node, float qMinX, float qMinY, float qMaxX, float qMaxY, Hit<T> hit) {
+        for (int i = 0; i < node.size; i++) {
+            if (node.minX[i] <= qMaxX && qMinX <= node.maxX[i] && node.minY[i] <= qMaxY && qMinY <= node.maxY[i]) {
+                if (node.leaf)
+                    hit.accept((T) node.items[i], node.orders[i]);
+                else
+                    search((Node) node.items[i], qMinX, qMinY, qMaxX, qMaxY, hit);
+            }
+        }
+    }
+
+    private Node findLeaf(Node node, Object item, Bounds b) {
+        for (int i = 0; i < node.size; i++) {
+            if (node.leaf) {
+                if (node.items[i] == item)
+                    return node;
+            } else if (node.minX[i] <= b.minX && node.minY[i] <= b.minY && node.maxX[i] >= b.maxX && node.maxY[i] >= b.maxY) {
+                Node found = findLeaf((Node) node.items[i], item, b);
+                if (found != null)
+                    return found;
+            }
+        }
+        return null;
+    }
+
+    // Splits overflowing nodes and refreshes the boxes stored for each node in its parent, up to the root
+    private void adjustUpwards(Node node) {
+        while (node != null) {
+            Node sibling = node.size > MAX_ENTRIES ? node.split() : null;
+            Node parent = node.parent;
+            if (parent == null) {
+                if (sibling != null) {
+                    Node newRoot = new Node(false);
+                    newRoot.addChild(node);
+                    newRoot.addChild(sibling);
+                    root = newRoot;
+                }
+                return;
+            }
+            parent.updateChild(node);
+            if (sibling != null)
+                parent.addChild(sibling);
+            node = parent;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void condense(Node leaf) {
+        List<Node> orphans = new ArrayList<>();
+        Node node = leaf;
+        while (node.parent != null) {
+            Node parent = node.parent;
+            if (node.size < MIN_ENTRIES) {
+                parent.removeAt(parent.indexOf(node));
+                orphans.add(node);
+            } else {
+                parent.updateChild(node);
+            }
+            node = parent;
+        }
+        if (!root.leaf && root.size == 1) {
+            root = (Node) root.items[0];
+            root.parent = null;
+        }
+        for (Node orphan : orphans)
+            reinsert(orphan);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reinsert(Node node) {
+        for (int i = 0; i < node.size; i++) {
+            if (node.leaf) {
+                size--;
+                insert((T) node.items[i], new Bounds(node.minX[i], node.minY[i], node.maxX[i], node.maxY[i]), node.orders[i]);
+            } else {
+                reinsert((Node) node.items[i]);
+            }
+        }
+    }
+
+    // Sort-Tile-Recursive: sort by x, cut into vertical slices, sort each slice by y and fill nodes in that order
+    private static List<Node> pack(int n, float[] minX, float[] minY, float[] maxX, float[] maxY,
+                                   Object[] payload, long[] orders, boolean leaf) {
+        int nodes = (n + MAX_ENTRIES - 1) / MAX_ENTRIES;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * MAX_ENTRIES;
+        long[] byX = new long[n];
+        for (int i = 0; i < n; i++)
+            byX[i] = sortKey(minX[i] + maxX[i], i);
+        Arrays.parallelSort(byX);
+        List<Node> packed = new ArrayList<>(nodes);
+        for (int from = 0; from < n; from += sliceSize) {
+            int to = Math.min(from + sliceSize, n);
+            long[] byY = new long[to - from];
+            for (int i = from; i < to; i++) {
+                int index = (int) byX[i];
+                byY[i - from] = sortKey(minY[index] + maxY[index], index);
+            }
+            Arrays.sort(byY);
+            Node node = null;
+            for (long key : byY) {
+                int index = (int) key;
+                if (node == null || node.size == MAX_ENTRIES) {
+                    node = new Node(leaf);
+                    packed.add(node);
+                }
+                if (leaf) {
+                    node.add(minX[index], minY[index], maxX[index], maxY[index], payload[index], orders[index]);
+                } else {
+                    Node child = (Node) payload[index];
+                    child.parent = node;
+                    node.add(minX[index], minY[index], maxX[index], maxY[index], child, 0);
+                }
+            }
+        }
+        return packed;
+    }
+
+    // Orders by a float coordinate in the high bits and carries the array index in the low bits
+    private static long sortKey(float coordinate, int index) {
+        int bits = Float.floatToIntBits(coordinate);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | index;
+    }
+
+    private static final class Node {
+        final boolean leaf;
+        Node parent;
+        int size;
+        final float[] minX = new float[MAX_ENTRIES + 1];
+        final float[] minY = new float[MAX_ENTRIES + 1];
+        final float[] maxX = new float[MAX_ENTRIES + 1];
+        final float[] maxY = new float[MAX_ENTRIES + 1];
+        final Object[] items = new Object[MAX_ENTRIES + 1];
+        final long[] orders;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            this.orders = leaf ? new long[MAX_ENTRIES + 1] : null;
+        }
+
+        void add(float x0, float y0, float x1, float y1, Object item, long order) {
+            minX[size] = x0;
+            minY[size] = y0;
+            maxX[size] = x1;
+            maxY[size] = y1;
+            items[size] = item;
+            if (leaf)
+                orders[size] = order;
+            size++;
+        }
+
+        void addChild(Node child) {
+            float[] box = child.box();
+            child.parent = this;
+            add(box[0], box[1], box[2], box[3], child, 0);
+        }
+
+        void updateChild(Node child) {
+            int slot = indexOf(child);
+            float[] box = child.box();
+            minX[slot] = box[0];
+            minY[slot] = box[1];
+            maxX[slot] = box[2];
+            maxY[slot] = box[3];
+        }
+
+        int indexOf(Object item) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == item)
+                    return i;
+            }
+            throw new IllegalStateException("Entry not found in node");
+        }
+
+        void removeAt(int slot) {
+            int last = --size;
+            minX[slot] = minX[last];
+            minY[slot] = minY[last];
+            maxX[slot] = maxX[last];
+            maxY[slot] = maxY[last];
+            items[slot] = items[last];
+            if (leaf)
+                orders[slot] = orders[last];
+            items[last] = null;
+        }
+
+        float[] box() {
+            float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+            float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                x0 = Math.min(x0, minX[i]);
+                y0 = Math.min(y0, minY[i]);
+                x1 = Math.max(x1, maxX[i]);
+                y1 = Math.max(y1, maxY[i]);
+            }
+            return new float[]{x0, y0, x1, y1};
+        }
+
+        // Least area enlargement, ties broken by the smaller area
+        int chooseChild(Bounds b) {
+            int best = 0;
+            float bestEnlargement = Float.POSITIVE_INFINITY;
+            float bestArea = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                float area = (maxX[i] - minX[i]) * (maxY[i] - minY[i]);
+                float enlarged = (Math.max(maxX[i], b.maxX) - Math.min(minX[i], b.minX))
+                        * (Math.max(maxY[i], b.maxY) - Math.min(minY[i], b.minY));
+                float enlargement = enlarged - area;
+                if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                    best = i;
+                    bestEnlargement = enlargement;
+                    bestArea = area;
+                }
+            }
+            return best;
+        }
+
+        // Sorts the entries along the axis with the larger spread and moves the upper half into a new node
+        Node split() {
+            float[] box = box();
+            boolean alongX = box[2] - box[0] >= box[3] - box[1];
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++)
+                keys[i] = sortKey(alongX ? minX[i] + maxX[i] : minY[i] + maxY[i], i);
+            Arrays.sort(keys);
+            float[][] copy = {minX.clone(), minY.clone(), maxX.clone(), maxY.clone()};
+            Object[] itemsCopy = items.clone();
+            long[] ordersCopy = leaf ? orders.clone() : null;
+            int total = size;
+            int half = total / 2;
+            Node sibling = new Node(leaf);
+            size = 0;
+            for (int k = 0; k < total; k++) {
+                int i = (int) keys[k];
+                Node target = k < half ? this : sibling;
+                target.add(copy[0][i], copy[1][i], copy[2][i], copy[3][i], itemsCopy[i], leaf ? ordersCopy[i] : 0);
+                if (!leaf)
+                    ((Node) itemsCopy[i]).parent = target;
+            }
+            Arrays.fill(items, size, items.length, null);
+            return sibling;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.designpattern.structural.composite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+Viewport culling and hit-testing over a CompositeGraphic of 10M shapes (pass another count as the first argument),
+through its R-tree index and through a linear scan of every child.
+10M shapes need a heap of about 3 GB, e.g. -Xmx3g.
+ */
+public class SpatialIndexBenchmark {
+
+    private static final float WORLD = 100_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Random random = new Random(11);
+        List<Graphic> shapes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            shapes.add(randomShape(random));
+        CompositeGraphic scene = new CompositeGraphic();
+        scene.addAll(shapes);
+
+        long start = System.nanoTime();
+        Bounds world = scene.getBounds();
+        System.out.printf("Bulk loaded %d shapes in %.0f ms, %s%n", count, (System.nanoTime() - start) / 1e6, world);
+
+        int queries = 1_000;
+        long visible = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            long[] counter = new long[1];
+            scene.visit(viewport(random), graphic -> counter[0]++);
+            visible += counter[0];
+        }
+        double indexed = (System.nanoTime() - start) / 1e3 / queries;
+        Bounds sample = viewport(random);
+        start = System.nanoTime();
+        long linearVisible = 0;
+        for (Graphic shape : shapes) {
+            if (shape.getBounds().intersects(sample))
+                linearVisible++;
+        }
+        double linear = (System.nanoTime() - start) / 1e3;
+        long[] indexedVisible = new long[1];
+        scene.visit(sample, graphic -> indexedVisible[0]++);
+        System.out.printf("Viewport: %.1f us per query with the index (%.0f shapes visible on average), %.0f us with a linear scan, %s%n",
+                indexed, (double) visible / queries, linear, indexedVisible[0] == linearVisible ? "same result" : "RESULTS DIFFER");
+
+        int points = 100_000;
+        int hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < points; i++) {
+            if (scene.hitTest(random.nextFloat() * WORLD, random.nextFloat() * WORLD) != null)
+                hits++;
+        }
+        double hitIndexed = (System.nanoTime() - start) / 1e3 / points;
+        float px = random.nextFloat() * WORLD, py = random.nextFloat() * WORLD;
+        start = System.nanoTime();
+        Graphic linearHit = null;
+        for (Graphic shape : shapes) {
+            if (shape.contains(px, py))
+                linearHit = shape;
+        }
+        double hitLinear = (System.nanoTime() - start) / 1e3;
+        System.out.printf("Hit test: %.2f us per point with the index (%d hits), %.0f us with a linear scan, %s%n",
+                hitIndexed, hits, hitLinear, scene.hitTest(px, py) == linearHit ? "same result" : "RESULTS DIFFER");
+
+        int updates = 100_000;
+        List<Graphic> added = new ArrayList<>(updates);
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            Graphic shape = randomShape(random);
+            added.add(shape);
+            scene.add(shape);
+        }
+        double insert = (System.nanoTime() - start) / 1e3 / updates;
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++)
+            scene.remove(shapes.get(i));
+        double remove = (System.nanoTime() - start) / 1e3 / updates;
+        System.out.printf("Incremental: %.2f us per add, %.2f us per remove (remove includes the list removal)%n", insert, remove);
+    }
+
+    private static Graphic randomShape(Random random) {
+        float x = random.nextFloat() * WORLD, y = random.nextFloat() * WORLD, size = 1 + random.nextFloat() * 9;
+        return random.nextBoolean() ? new Circle(x, y, size) : new Square(x, y, size);
+    }
+
+    private static Bounds viewport(Random random) {
+        float x = random.nextFloat() * (WORLD - 1_000), y = random.nextFloat() * (WORLD - 1_000);
+        return new Bounds(x, y, x + 1_000, y + 1_000);
+    }
+}
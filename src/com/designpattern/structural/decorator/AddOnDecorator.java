@@ -0,0 +1,23 @@
+package com.designpattern.structural.decorator;
+
+// Decorator for any add-on on the menu, so a new add-on does not need its own class
+public class AddOnDecorator extends CoffeeDecorator {
+    private final String name;
+    private final double cost;
+
+    public AddOnDecorator(Coffee coffee, String name, double cost) {
+        super(coffee);
+        this.name = name;
+        this.cost = cost;
+    }
+
+    @Override
+    protected String addOnName() {
+        return name;
+    }
+
+    @Override
+    protected double addOnCost() {
+        return cost;
+    }
+}
@@ -2,7 +2,13 @@ package com.designpattern.structural.decorator;
 
 
 /*
-CoffeeDecorator needs to be implemented
+Base class for add-ons wrapped around a Coffee. A subclass states what its layer adds through two hooks:
+addOnName() is the text appended to the description and addOnCost() the amount added to the price.
+getDiscription() and getCost() are built from them, and FrozenCoffee reads them to flatten a chain without recursing.
+
+A decorator that cannot be described as "name plus amount" leaves addOnName() null and overrides
+getDiscription() and getCost() itself. Such an opaque layer ends the flattening: its own description and cost
+become the frozen base, and its addOnCost() is never consulted, so it should just return 0.
  */
 public abstract class CoffeeDecorator implements Coffee{
 
@@ -12,13 +18,25 @@ public abstract class CoffeeDecorator implements Coffee{
         this.decoratedCoffee = coffee;
     }
 
+    // Both default to this layer's add-on on top of decoratedCoffee, so they always agree with what freeze() records
     @Override
     public String getDiscription() {
-        return decoratedCoffee.getDiscription();
+        String name = addOnName();
+        return name == null ? decoratedCoffee.getDiscription() : decoratedCoffee.getDiscription() + ", " + name;
     }
 
     @Override
     public double getCost() {
-        return decoratedCoffee.getCost();
+        return decoratedCoffee.getCost() + addOnCost();
+    }
+
+    /*
+    What this layer adds on top of decoratedCoffee. addOnCost() has no default, so a decorator that also overrides
+    getCost() while keeping a name has to state the same amount here.
+     */
+    protected String addOnName() {
+        return null;
     }
+
+    protected abstract double addOnCost();
 }
@@ -0,0 +1,55 @@
+package com.designpattern.structural.decorator;
+
+/*
+Prices a coffee with 1 to 256 add-ons (alternating milk and sugar) through the live decorator chain and through
+its FrozenCoffee, and times freeze() itself when the chain is already in the structural cache.
+ */
+public class DecoratorChainBenchmark {
+
+    public static void main(String[] args) {
+        int[] depths = {1, 4, 16, 64, 256};
+        for (int run = 1; run <= 3; run++) {
+            System.out.println("Run " + run);
+            for (int depth : depths) {
+                Coffee live = chain(depth);
+                FrozenCoffee frozen = FrozenCoffee.freeze(chain(depth));
+                int iterations = Math.max(1_000, 2_000_000 / depth);
+
+                long start = System.nanoTime();
+                long liveChecksum = price(live, iterations);
+                double liveNanos = (double) (System.nanoTime() - start) / iterations;
+
+                start = System.nanoTime();
+                long frozenChecksum = price(frozen, iterations);
+                double frozenNanos = (double) (System.nanoTime() - start) / iterations;
+
+                start = System.nanoTime();
+                int shared = 0;
+                for (int i = 0; i < iterations; i++) {
+                    if (FrozenCoffee.freeze(live) == frozen)
+                        shared++;
+                }
+                double freezeNanos = (double) (System.nanoTime() - start) / iterations;
+
+                System.out.printf("  depth %3d: live %9.1f ns, frozen %6.1f ns, cached freeze %8.1f ns, %s%n",
+                        depth, liveNanos, frozenNanos, freezeNanos,
+                        liveChecksum == frozenChecksum && shared == iterations ? "same price and description" : "RESULTS DIFFER");
+            }
+        }
+    }
+
+    private static Coffee chain(int depth) {
+        Coffee coffee = new SimpleCoffee();
+        for (int i = 0; i < depth; i++)
+            coffee = i % 2 == 0 ? new MilkDecorator(coffee) : new SugarDecorator(coffee);
+        return coffee;
+    }
+
+    // One price lookup is a cost plus a description, as a configurator would show them
+    private static long price(Coffee coffee, int iterations) {
+        long checksum = 0;
+        for (int i = 0; i < iterations; i++)
+            checksum += Double.doubleToLongBits(coffee.getCost()) ^ coffee.getDiscription().length();
+        return checksum;
+    }
+}
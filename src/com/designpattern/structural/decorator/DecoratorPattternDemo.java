@@ -12,5 +12,9 @@ public class DecoratorPattternDemo {
         coffee = new SugarDecorator(coffee);
         System.out.println(coffee.getDiscription() + " -> $" + coffee.getCost());
 
+        Coffee frozen = FrozenCoffee.freeze(coffee);
+        System.out.println("Frozen: " + frozen.getDiscription() + " -> $" + frozen.getCost());
+        System.out.println("Same instance for an identical chain: "
+                + (frozen == FrozenCoffee.freeze(new SugarDecorator(new MilkDecorator(new SimpleCoffee())))));
     }
 }
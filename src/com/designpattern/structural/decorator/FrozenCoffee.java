@@ -0,0 +1,102 @@
+package com.designpattern.structural.decorator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Immutable snapshot of a decorator chain. freeze() walks the chain once, innermost coffee first, and records the base
+and every add-on, so getCost() is a field read and getDiscription() is built once with a single StringBuilder
+instead of one concatenation per layer. Chains with the same base and the same add-ons in the same order share one
+FrozenCoffee through a structural cache.
+ */
+public final class FrozenCoffee implements Coffee {
+
+    // Keeps a configurator that generates endless distinct chains from growing the cache without bound
+    static final int MAX_CACHED = 10_000;
+
+    private static final Map<Key, FrozenCoffee> CACHE = new ConcurrentHashMap<>();
+
+    private final String baseDiscription;
+    private final double baseCost;
+    private final List<AddOn> addOns;
+    private final double cost;
+    private String discription;
+
+    private FrozenCoffee(Key key) {
+        this.baseDiscription = key.baseDiscription();
+        this.baseCost = key.baseCost();
+        this.addOns = key.addOns();
+        double total = key.baseCost();
+        // same order of additions as the live chain, so the cost matches it exactly
+        for (AddOn addOn : addOns)
+            total += addOn.cost();
+        this.cost = total;
+    }
+
+    public static FrozenCoffee freeze(Coffee coffee) {
+        if (coffee instanceof FrozenCoffee frozen)
+            return frozen;
+        List<AddOn> addOns = new ArrayList<>();
+        Coffee current = coffee;
+        while (current instanceof CoffeeDecorator decorator && decorator.addOnName() != null) {
+            addOns.add(new AddOn(decorator.addOnName(), decorator.addOnCost()));
+            current = decorator.decoratedCoffee;
+        }
+        Collections.reverse(addOns);
+        Key key;
+        if (current instanceof FrozenCoffee frozen) {
+            List<AddOn> all = new ArrayList<>(frozen.addOns);
+            all.addAll(addOns);
+            key = new Key(frozen.baseDiscription, frozen.baseCost, List.copyOf(all));
+        } else {
+            key = new Key(current.getDiscription(), current.getCost(), List.copyOf(addOns));
+        }
+        FrozenCoffee cached = CACHE.get(key);
+        if (cached != null)
+            return cached;
+        FrozenCoffee created = new FrozenCoffee(key);
+        if (CACHE.size() >= MAX_CACHED)
+            return created;
+        cached = CACHE.putIfAbsent(key, created);
+        return cached != null ? cached : created;
+    }
+
+    static int cacheSize() {
+        return CACHE.size();
+    }
+
+    @Override
+    public String getDiscription() {
+        // racy but safe: every thread computes the same immutable String
+        String result = discription;
+        if (result == null) {
+            int length = baseDiscription.length();
+            for (AddOn addOn : addOns)
+                length += 2 + addOn.name().length();
+            StringBuilder builder = new StringBuilder(length).append(baseDiscription);
+            for (AddOn addOn : addOns)
+                builder.append(", ").append(addOn.name());
+            result = builder.toString();
+            discription = result;
+        }
+        return result;
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    public int addOnCount() {
+        return addOns.size();
+    }
+
+    private record AddOn(String name, double cost) {
+    }
+
+    private record Key(String baseDiscription, double baseCost, List<AddOn> addOns) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.designpattern.structural.decorator;
+
+// A base coffee whose name and price come from the menu instead of being fixed like SimpleCoffee
+public class MenuCoffee implements Coffee {
+    private final String name;
+    private final double cost;
+
+    public MenuCoffee(String name, double cost) {
+        this.name = name;
+        this.cost = cost;
+    }
+
+    @Override
+    public String getDiscription() {
+        return name;
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+}
@@ -0,0 +1,85 @@
+package com.designpattern.structural.decorator;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/*
+Prices every combination of 5 bases and 21 add-ons (10,485,760 combinations) three ways: building the decorator chain
+and calling getCost(), MenuPricingEngine.priceAll(), and cached priceCents() lookups from several threads over a
+working set of popular combinations. Then changes one add-on price and reports how much of the cache was dropped.
+ */
+public class MenuPricingBenchmark {
+
+    private static final int BASES = 5;
+    private static final int ADD_ONS = 21;
+
+    public static void main(String[] args) {
+        String[] baseNames = new String[BASES];
+        double[] basePrices = new double[BASES];
+        for (int i = 0; i < BASES; i++) {
+            baseNames[i] = "Base " + i;
+            basePrices[i] = 2.5 + i * 0.75;
+        }
+        String[] addOnNames = new String[ADD_ONS];
+        double[] addOnPrices = new double[ADD_ONS];
+        for (int i = 0; i < ADD_ONS; i++) {
+            addOnNames[i] = "Add-on " + i;
+            addOnPrices[i] = 0.05 * (i + 1);
+        }
+        MenuPricingEngine engine = new MenuPricingEngine(baseNames, basePrices, addOnNames, addOnPrices, 1 << 20);
+        int combinations = 1 << ADD_ONS;
+        long total = (long) BASES * combinations;
+        Random random = new Random(17);
+
+        for (int run = 1; run <= 3; run++) {
+            int sample = 200_000;
+            long start = System.nanoTime();
+            double sampleSum = 0;
+            for (int i = 0; i < sample; i++)
+                sampleSum += engine.build(random.nextInt(BASES), random.nextInt(combinations)).getCost();
+            double decoratorNanos = (double) (System.nanoTime() - start) / sample;
+
+            long[][] tables = new long[BASES][combinations];
+            start = System.nanoTime();
+            for (int base = 0; base < BASES; base++)
+                engine.priceAll(base, ADD_ONS, tables[base]);
+            double bulkMillis = (System.nanoTime() - start) / 1e6;
+
+            int mismatches = 0;
+            for (int i = 0; i < 10_000; i++) {
+                int base = random.nextInt(BASES), mask = random.nextInt(combinations);
+                if (Math.round(engine.build(base, mask).getCost() * 100) != tables[base][mask])
+                    mismatches++;
+            }
+            System.out.printf("Run %d: %d combinations, decorators %.0f ns each (%.1f s projected, sample sum %.0f), "
+                            + "priceAll %.0f ms (%.2f ns each), %s%n",
+                    run, total, decoratorNanos, decoratorNanos * total / 1e9, sampleSum, bulkMillis, bulkMillis * 1e6 / total,
+                    mismatches == 0 ? "same prices" : mismatches + " PRICES DIFFER");
+
+            int[] popular = new int[100_000];
+            for (int i = 0; i < popular.length; i++)
+                popular[i] = random.nextInt(BASES * combinations);
+            int lookups = 10_000_000;
+            start = System.nanoTime();
+            long wrong = IntStream.range(0, lookups).parallel().filter(i -> {
+                int combination = popular[(int) ((i * 0x9E3779B97F4A7C15L) >>> 47) % popular.length];
+                int base = combination / combinations, mask = combination % combinations;
+                return engine.priceCents(base, mask) != tables[base][mask];
+            }).count();
+            double lookupNanos = (double) (System.nanoTime() - start) / lookups;
+            System.out.printf("       %d cached lookups on %d threads: %.1f ns each, %d cached entries, %s%n",
+                    lookups, Runtime.getRuntime().availableProcessors(), lookupNanos, engine.cachedCount(),
+                    wrong == 0 ? "same prices" : wrong + " PRICES DIFFER");
+
+            int cached = engine.cachedCount();
+            start = System.nanoTime();
+            int dropped = engine.updateAddOnPrice(7, addOnPrices[7] + 0.10 * run);
+            double updateMillis = (System.nanoTime() - start) / 1e6;
+            engine.priceAll(0, ADD_ONS, tables[0]);
+            int mask = (1 << 7) | 1;
+            System.out.printf("       Add-on 7 repriced in %.1f ms: dropped %d of %d cached entries, %s%n",
+                    updateMillis, dropped, cached,
+                    engine.priceCents(0, mask) == tables[0][mask] ? "new price served" : "STALE PRICE");
+        }
+    }
+}
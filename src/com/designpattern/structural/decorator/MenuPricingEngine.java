@@ -0,0 +1,328 @@
+package com.designpattern.structural.decorator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+Prices base coffee + add-on combinations without building decorator objects. A combination is a base id and a bitmask
+of add-on ids, packed into one long key (base in the high 32 bits, mask in the low 32). Prices are kept in cents.
+
+The price of a combination is the price of its prefix (the mask without its highest add-on) plus that add-on, the same
+order in which build() stacks the decorators. priceCents() memoizes every prefix it computes in a concurrent
+primitive-keyed cache, so combinations that share add-ons share work. priceAll() fills a whole table for one base
+with the same recurrence and no cache.
+
+Changing the price of an add-on or base drops only the cached entries that contain it. Prices computed while a
+change is in progress are returned but not cached.
+ */
+public class MenuPricingEngine {
+
+    public static final int MAX_ADD_ONS = 31;
+
+    private final String[] baseNames;
+    private final long[] baseCents;
+    private final String[] addOnNames;
+    private final long[] addOnCents;
+    /*
+    Odd while a price change is in progress, bumped to even once its stale entries are gone. A computation only
+    caches its results if the version is the same even number when it stores them as when it started, so nothing it
+    read (a price, or a cached prefix) can have been changed in between. The increments also publish the price arrays
+    to computations that read the version first.
+     */
+    private final AtomicLong version = new AtomicLong();
+    private final PriceCache cache;
+
+    public MenuPricingEngine(String[] baseNames, double[] basePrices, String[] addOnNames, double[] addOnPrices,
+                             int cacheCapacity) {
+        if (baseNames.length != basePrices.length || addOnNames.length != addOnPrices.length)
+            throw new IllegalArgumentException("Every base and add-on needs exactly one price");
+        if (addOnNames.length > MAX_ADD_ONS)
+            throw new IllegalArgumentException("At most " + MAX_ADD_ONS + " add-ons can be combined");
+        this.baseNames = baseNames.clone();
+        this.addOnNames = addOnNames.clone();
+        this.baseCents = new long[basePrices.length];
+        for (int i = 0; i < basePrices.length; i++)
+            baseCents[i] = toCents(basePrices[i]);
+        this.addOnCents = new long[addOnPrices.length];
+        for (int i = 0; i < addOnPrices.length; i++)
+            addOnCents[i] = toCents(addOnPrices[i]);
+        this.cache = new PriceCache(cacheCapacity);
+    }
+
+    public static long key(int base, int addOnMask) {
+        return (long) base << 32 | (addOnMask & 0xFFFFFFFFL);
+    }
+
+    public int baseCount() {
+        return baseCents.length;
+    }
+
+    public int addOnCount() {
+        return addOnCents.length;
+    }
+
+    public double price(int base, int addOnMask) {
+        return priceCents(base, addOnMask) / 100.0;
+    }
+
+    public long priceCents(int base, int addOnMask) {
+        checkCombination(base, addOnMask);
+        long cached = cache.get(key(base, addOnMask));
+        if (cached != PriceCache.MISSING)
+            return cached;
+        long seen = version.get();
+        return compute(base, addOnMask, seen);
+    }
+
+    private long compute(int base, int addOnMask, long seen) {
+        if (addOnMask == 0)
+            return baseCents[base];
+        long key = key(base, addOnMask);
+        long cached = cache.get(key);
+        if (cached != PriceCache.MISSING)
+            return cached;
+        int top = 31 - Integer.numberOfLeadingZeros(addOnMask);
+        long cents = compute(base, addOnMask & ~(1 << top), seen) + addOnCents[top];
+        if ((seen & 1) == 0)
+            cache.put(key, cents, version, seen);
+        return cents;
+    }
+
+    /*
+    Prices all 2^addOns combinations of the first addOns add-ons on one base into out[mask]. Each entry is its
+    prefix plus one add-on, so the whole table costs one addition per combination. At most 30 add-ons fit in an
+    array.
+     */
+    public void priceAll(int base, int addOns, long[] out) {
+        if (addOns < 0 || addOns > addOnCents.length)
+            throw new IllegalArgumentException("Only " + addOnCents.length + " add-ons are on the menu");
+        if (addOns > 30)
+            throw new IllegalArgumentException("Cannot tabulate more than 30 add-ons, got " + addOns);
+        int combinations = 1 << addOns;
+        if (out.length < combinations)
+            throw new IllegalArgumentException("Need room for " + combinations + " prices");
+        out[0] = baseCents[base];
+        for (int top = 0; top < addOns; top++) {
+            long cents = addOnCents[top];
+            int half = 1 << top;
+            for (int mask = 0; mask < half; mask++)
+                out[half + mask] = out[mask] + cents;
+        }
+    }
+
+    // Changes one add-on's price and drops the cached combinations that include it; returns how many were dropped
+    public synchronized int updateAddOnPrice(int addOn, double price) {
+        version.incrementAndGet();
+        try {
+            addOnCents[addOn] = toCents(price);
+            return cache.removeIf(1L << addOn, 0);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    public synchronized int updateBasePrice(int base, double price) {
+        version.incrementAndGet();
+        try {
+            baseCents[base] = toCents(price);
+            return cache.removeIf(0, base);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    public int cachedCount() {
+        return cache.size();
+    }
+
+    // The same combination as a decorator chain, innermost add-on first
+    public Coffee build(int base, int addOnMask) {
+        checkCombination(base, addOnMask);
+        Coffee coffee = new MenuCoffee(baseNames[base], baseCents[base] / 100.0);
+        for (int bits = addOnMask; bits != 0; bits &= bits - 1) {
+            int addOn = Integer.numberOfTrailingZeros(bits);
+            coffee = new AddOnDecorator(coffee, addOnNames[addOn], addOnCents[addOn] / 100.0);
+        }
+        return coffee;
+    }
+
+    private void checkCombination(int base, int addOnMask) {
+        if (base < 0 || base >= baseCents.length)
+            throw new IllegalArgumentException("Unknown base " + base);
+        if (addOnMask >>> addOnCents.length != 0)
+            throw new IllegalArgumentException("Unknown add-ons in mask " + Integer.toBinaryString(addOnMask));
+    }
+
+    private static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
+    /*
+    long -> long hash map split into segments, each an open addressing table with keys and values interleaved in one
+    array. Reads are optimistic (StampedLock) and take no lock unless a writer got in the way. A full segment is
+    cleared rather than grown, so the cache stays within its capacity.
+     */
+    static final class PriceCache {
+        static final long MISSING = Long.MIN_VALUE;
+        private static final long FREE = -1;
+        private static final int SEGMENTS = 64;
+
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        PriceCache(int capacity) {
+            int wanted = Math.max(16, capacity / SEGMENTS * 4 / 3 + 1);
+            int perSegment = Integer.highestOneBit(wanted - 1) << 1;
+            for (int i = 0; i < SEGMENTS; i++)
+                segments[i] = new Segment(perSegment);
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            return key ^ key >>> 33;
+        }
+
+        private Segment segment(long hash) {
+            return segments[(int) (hash >>> 58)];
+        }
+
+        long get(long key) {
+            long hash = mix(key);
+            return segment(hash).get(key, (int) hash);
+        }
+
+        void put(long key, long value, AtomicLong version, long seen) {
+            long hash = mix(key);
+            segment(hash).put(key, (int) hash, value, version, seen);
+        }
+
+        // Removes entries whose mask shares a bit with addOnBits, or whose base is base when addOnBits is 0
+        int removeIf(long addOnBits, int base) {
+            int removed = 0;
+            for (Segment segment : segments)
+                removed += segment.removeIf(addOnBits, base);
+            return removed;
+        }
+
+        int size() {
+            int size = 0;
+            for (Segment segment : segments)
+                size += segment.size();
+            return size;
+        }
+
+        private static final class Segment {
+            private final StampedLock lock = new StampedLock();
+            private final int capacity;
+            private long[] table;
+            private int size;
+
+            Segment(int capacity) {
+                this.capacity = capacity;
+                this.table = newTable(capacity);
+            }
+
+            private static long[] newTable(int capacity) {
+                long[] table = new long[capacity * 2];
+                Arrays.fill(table, FREE);
+                return table;
+            }
+
+            long get(long key, int hash) {
+                long stamp = lock.tryOptimisticRead();
+                long value = find(table, key, hash);
+                if (lock.validate(stamp))
+                    return value;
+                stamp = lock.readLock();
+                try {
+                    return find(table, key, hash);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            private static long find(long[] table, long key, int hash) {
+                int mask = table.length / 2 - 1;
+                for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                    long stored = table[slot * 2];
+                    if (stored == key)
+                        return table[slot * 2 + 1];
+                    if (stored == FREE)
+                        return MISSING;
+                }
+            }
+
+            void put(long key, int hash, long value, AtomicLong version, long seen) {
+                long stamp = lock.writeLock();
+                try {
+                    if (version.get() != seen)
+                        return;
+                    // keep the load factor at or below 3/4
+                    if (size >= capacity - capacity / 4) {
+                        table = newTable(capacity);
+                        size = 0;
+                    }
+                    int mask = capacity - 1;
+                    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                        long stored = table[slot * 2];
+                        if (stored == FREE) {
+                            table[slot * 2] = key;
+                            table[slot * 2 + 1] = value;
+                            size++;
+                            return;
+                        }
+                        if (stored == key) {
+                            table[slot * 2 + 1] = value;
+                            return;
+                        }
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+
+            // Rebuilds the table without the affected keys, since linear probing cannot simply blank a slot
+            int removeIf(long addOnBits, int base) {
+                long stamp = lock.writeLock();
+                try {
+                    long[] old = table;
+                    long[] kept = newTable(capacity);
+                    int mask = capacity - 1;
+                    int removed = 0;
+                    for (int i = 0; i < old.length; i += 2) {
+                        long key = old[i];
+                        if (key == FREE)
+                            continue;
+                        boolean affected = addOnBits != 0 ? (key & addOnBits) != 0 : (int) (key >>> 32) == base;
+                        if (affected) {
+                            removed++;
+                            continue;
+                        }
+                        int slot = (int) mix(key) & mask;
+                        while (kept[slot * 2] != FREE)
+                            slot = (slot + 1) & mask;
+                        kept[slot * 2] = key;
+                        kept[slot * 2 + 1] = old[i + 1];
+                    }
+                    if (removed > 0) {
+                        table = kept;
+                        size -= removed;
+                    }
+                    return removed;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+
+            int size() {
+                long stamp = lock.readLock();
+                try {
+                    return size;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.designpattern.structural.decorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+Runs priceCents() lookups on several threads while another thread keeps changing add-on and base prices. After each
+round, with no change in flight, every combination's priceCents() (cached or not) must match a fresh priceAll()
+table; a stale cached prefix would show up as a mismatch. Exits with status 1 if any price differs.
+ */
+public class MenuPricingStressCheck {
+
+    private static final int BASES = 3;
+    private static final int ADD_ONS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String[] baseNames = {"Espresso", "Latte", "Mocha"};
+        double[] basePrices = {2.0, 3.0, 3.5};
+        String[] addOnNames = new String[ADD_ONS];
+        double[] addOnPrices = new double[ADD_ONS];
+        for (int i = 0; i < ADD_ONS; i++) {
+            addOnNames[i] = "Add-on " + i;
+            addOnPrices[i] = 0.10 * (i + 1);
+        }
+        // a small cache so segments fill up and get cleared during the run as well
+        MenuPricingEngine engine = new MenuPricingEngine(baseNames, basePrices, addOnNames, addOnPrices, 2048);
+        int combinations = 1 << ADD_ONS;
+        int readers = Math.max(3, Runtime.getRuntime().availableProcessors());
+        long[] table = new long[combinations];
+        long mismatches = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            AtomicBoolean done = new AtomicBoolean();
+            List<Thread> threads = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!done.get())
+                        engine.priceCents(random.nextInt(BASES), random.nextInt(combinations));
+                }));
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int update = 0; update < 50; update++) {
+                if (random.nextInt(5) == 0)
+                    engine.updateBasePrice(random.nextInt(BASES), 1 + random.nextInt(400) / 100.0);
+                else
+                    engine.updateAddOnPrice(random.nextInt(ADD_ONS), random.nextInt(200) / 100.0);
+                Thread.yield();
+            }
+            done.set(true);
+            for (Thread thread : threads)
+                thread.join();
+
+            for (int base = 0; base < BASES; base++) {
+                engine.priceAll(base, ADD_ONS, table);
+                for (int mask = 0; mask < combinations; mask++) {
+                    if (engine.priceCents(base, mask) != table[mask])
+                        mismatches++;
+                }
+            }
+        }
+        System.out.printf("%d rounds with %d reader threads: %s%n", rounds, readers,
+                mismatches == 0 ? "every cached price matches priceAll" : mismatches + " STALE PRICES");
+        if (mismatches != 0)
+            System.exit(1);
+    }
+}
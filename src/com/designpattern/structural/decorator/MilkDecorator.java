@@ -7,12 +7,12 @@ public class MilkDecorator extends CoffeeDecorator{
     }
 
     @Override
-    public String getDiscription() {
-        return super.getDiscription() + ", Milk";
+    protected String addOnName() {
+        return "Milk";
     }
 
     @Override
-    public double getCost() {
-        return super.getCost() + 1.5;
+    protected double addOnCost() {
+        return 1.5;
     }
 }
@@ -6,12 +6,12 @@ public class SugarDecorator extends CoffeeDecorator{
     }
 
     @Override
-    public String getDiscription() {
-        return super.getDiscription() + ", Sugar";
+    protected String addOnName() {
+        return "Sugar";
     }
 
     @Override
-    public double getCost() {
-        return super.getCost() + 0.5;
+    protected double addOnCost() {
+        return 0.5;
     }
 }
@@ -1,31 +1,126 @@
 package com.designpattern.structural.facade;
 
-class DVDPlayer {
+import java.time.Duration;
+
+/*
+Every subsystem call can be given a simulated latency, standing in for the slow I/O of real devices.
+Calls record their state so the facade can skip steps that are already done.
+ */
+abstract class Subsystem {
+    private final Duration latency;
+
+    Subsystem(Duration latency) {
+        this.latency = latency;
+    }
+
+    protected void simulateIo() {
+        if (latency.isZero())
+            return;
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + getClass().getSimpleName(), e);
+        }
+    }
+}
+class DVDPlayer extends Subsystem {
+    private volatile boolean on;
+    private volatile boolean playing;
+
+    public DVDPlayer() {
+        this(Duration.ZERO);
+    }
+
+    public DVDPlayer(Duration latency) {
+        super(latency);
+    }
 
     public void on() {
+        simulateIo();
+        on = true;
         System.out.println("Switching on DVD Player");
     }
     public void play() {
+        simulateIo();
+        playing = true;
         System.out.println("Playing dvd now");
     }
+    public boolean isOn() {
+        return on;
+    }
+    public boolean isPlaying() {
+        return playing;
+    }
 }
-class Projector {
+class Projector extends Subsystem {
+    private volatile boolean on;
+
+    public Projector() {
+        this(Duration.ZERO);
+    }
+
+    public Projector(Duration latency) {
+        super(latency);
+    }
+
     public void on() {
+        simulateIo();
+        on = true;
         System.out.println("Switching on projector");
     }
+    public boolean isOn() {
+        return on;
+    }
 }
-class Amplifier {
+class Amplifier extends Subsystem {
+    private volatile boolean on;
+    private volatile int soundLevel = -1;
+
+    public Amplifier() {
+        this(Duration.ZERO);
+    }
+
+    public Amplifier(Duration latency) {
+        super(latency);
+    }
+
     public void on() {
+        simulateIo();
+        on = true;
         System.out.println("Switching on Amplifier");
     }
     public void setSoundLevel(int level) {
+        simulateIo();
+        soundLevel = level;
         System.out.println("Setting sound level to " + level);
     }
+    public boolean isOn() {
+        return on;
+    }
+    public int getSoundLevel() {
+        return soundLevel;
+    }
 }
-class Lights {
+class Lights extends Subsystem {
+    private volatile int level = -1;
+
+    public Lights() {
+        this(Duration.ZERO);
+    }
+
+    public Lights(Duration latency) {
+        super(latency);
+    }
+
     public void setLight(int level) {
+        simulateIo();
+        this.level = level;
         System.out.println("Setting brightness to " + level);
     }
+    public int getLevel() {
+        return level;
+    }
 }
 class HomeTheaterFacade {
     private Projector projector;
@@ -48,6 +143,20 @@ class HomeTheaterFacade {
         amplifier.setSoundLevel(20);
         dvdPlayer.play();
     }
+
+    // Same steps as watchMovie(), run as a dependency graph so independent devices start at the same time
+    public StartupReport watchMovieConcurrently(Duration stepTimeout) {
+        return new StartupPlan(stepTimeout)
+                .step("projector.on", projector::on, projector::isOn)
+                .step("dvdPlayer.on", dvdPlayer::on, dvdPlayer::isOn)
+                .step("amplifier.on", amplifier::on, amplifier::isOn)
+                .step("lights.setLight", () -> lights.setLight(10), () -> lights.getLevel() == 10)
+                .step("amplifier.setSoundLevel", () -> amplifier.setSoundLevel(20), () -> amplifier.getSoundLevel() == 20,
+                        "amplifier.on")
+                .step("dvdPlayer.play", dvdPlayer::play, dvdPlayer::isPlaying,
+                        "dvdPlayer.on", "amplifier.setSoundLevel", "projector.on")
+                .run();
+    }
 }
 public class HomeTheaterSystem {
     public static void main(String[] args) {
@@ -60,5 +169,24 @@ public class HomeTheaterSystem {
         HomeTheaterFacade homeTheaterFacade = new HomeTheaterFacade(projector, dvdPlayer, amplifier, lights);
         homeTheaterFacade.watchMovie();
 
+        System.out.println();
+        long start = System.nanoTime();
+        slowTheater().watchMovie();
+        System.out.printf("Sequential start with simulated latency took %d ms%n%n", (System.nanoTime() - start) / 1_000_000);
+
+        HomeTheaterFacade concurrent = slowTheater();
+        System.out.println(concurrent.watchMovieConcurrently(Duration.ofSeconds(2)));
+        System.out.println("Starting again, everything is already on:");
+        System.out.println(concurrent.watchMovieConcurrently(Duration.ofSeconds(2)));
+
+        HomeTheaterFacade stuck = new HomeTheaterFacade(new Projector(Duration.ofMillis(400)), new DVDPlayer(Duration.ofSeconds(5)),
+                new Amplifier(Duration.ofMillis(300)), new Lights(Duration.ofMillis(100)));
+        System.out.println("With a DVD player that does not respond in time:");
+        System.out.println(stuck.watchMovieConcurrently(Duration.ofSeconds(1)));
+    }
+
+    private static HomeTheaterFacade slowTheater() {
+        return new HomeTheaterFacade(new Projector(Duration.ofMillis(400)), new DVDPlayer(Duration.ofMillis(250)),
+                new Amplifier(Duration.ofMillis(300)), new Lights(Duration.ofMillis(100)));
     }
 }
@@ -0,0 +1,169 @@
+package com.designpattern.structural.facade;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/*
+Startup steps declared as a dependency graph. run() starts one virtual thread per step. Each thread waits for the
+steps it depends on and then runs its action on another virtual thread, interrupting it when it takes longer than the
+timeout; run() does not wait for an action that ignores the interrupt. A step whose done-check already holds is
+skipped, and a step whose dependency failed is not attempted.
+ */
+class StartupPlan {
+    private final Duration stepTimeout;
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    StartupPlan(Duration stepTimeout) {
+        this.stepTimeout = stepTimeout;
+    }
+
+    // Dependencies have to be declared before the steps that use them, which also rules out cycles
+    public StartupPlan step(String name, Runnable action, BooleanSupplier alreadyDone, String... dependsOn) {
+        if (steps.containsKey(name))
+            throw new IllegalArgumentException("Step " + name + " is declared twice");
+        List<Step> dependencies = new ArrayList<>(dependsOn.length);
+        for (String dependency : dependsOn) {
+            Step step = steps.get(dependency);
+            if (step == null)
+                throw new IllegalArgumentException("Step " + name + " depends on undeclared step " + dependency);
+            dependencies.add(step);
+        }
+        steps.put(name, new Step(name, action, alreadyDone, dependencies));
+        return this;
+    }
+
+    public StartupReport run() {
+        long start = System.nanoTime();
+        Map<Step, CompletableFuture<StepResult>> results = new HashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Step step : steps.values()) {
+                CompletableFuture<StepResult> result = new CompletableFuture<>();
+                results.put(step, result);
+                List<CompletableFuture<StepResult>> dependencies = new ArrayList<>();
+                for (Step dependency : step.dependencies())
+                    dependencies.add(results.get(dependency));
+                executor.execute(() -> result.complete(runStep(step, dependencies, start)));
+            }
+        }
+        List<StepResult> outcome = new ArrayList<>(steps.size());
+        for (Step step : steps.values())
+            outcome.add(results.get(step).join());
+        return new StartupReport(outcome, System.nanoTime() - start);
+    }
+
+    private StepResult runStep(Step step, List<CompletableFuture<StepResult>> dependencies, long planStart) {
+        StepResult critical = null;
+        for (CompletableFuture<StepResult> dependency : dependencies) {
+            StepResult result = dependency.join();
+            if (!result.succeeded())
+                return new StepResult(step.name(), StepResult.Status.SKIPPED_DEPENDENCY_FAILED, result,
+                        result.endNanos(), result.endNanos(), "waiting for " + result.name());
+            if (critical == null || result.endNanos() > critical.endNanos())
+                critical = result;
+        }
+        long begin = System.nanoTime() - planStart;
+        if (step.alreadyDone().getAsBoolean())
+            return new StepResult(step.name(), StepResult.Status.ALREADY_DONE, critical, begin, begin, null);
+        FutureTask<Void> running = new FutureTask<>(step.action(), null);
+        Thread.ofVirtual().name(step.name()).start(running);
+        try {
+            running.get(stepTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            return new StepResult(step.name(), StepResult.Status.DONE, critical, begin, System.nanoTime() - planStart, null);
+        } catch (TimeoutException e) {
+            running.cancel(true);
+            return new StepResult(step.name(), StepResult.Status.TIMED_OUT, critical, begin, System.nanoTime() - planStart,
+                    "no response within " + stepTimeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            return new StepResult(step.name(), StepResult.Status.FAILED, critical, begin, System.nanoTime() - planStart,
+                    String.valueOf(e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            running.cancel(true);
+            Thread.currentThread().interrupt();
+            return new StepResult(step.name(), StepResult.Status.FAILED, critical, begin, System.nanoTime() - planStart,
+                    "interrupted");
+        }
+    }
+
+    private record Step(String name, Runnable action, BooleanSupplier alreadyDone, List<Step> dependencies) {
+    }
+}
+
+/*
+Outcome of one step. after is the dependency that finished last, i.e. the one this step actually waited for,
+so following it back from the last step to finish gives the critical path. Times are relative to the plan start.
+ */
+record StepResult(String name, Status status, StepResult after, long startNanos, long endNanos, String detail) {
+    enum Status { DONE, ALREADY_DONE, TIMED_OUT, FAILED, SKIPPED_DEPENDENCY_FAILED }
+
+    boolean succeeded() {
+        return status == Status.DONE || status == Status.ALREADY_DONE;
+    }
+}
+
+class StartupReport {
+    private final List<StepResult> results;
+    private final long elapsedNanos;
+
+    StartupReport(List<StepResult> results, long elapsedNanos) {
+        this.results = results;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean succeeded() {
+        return results.stream().allMatch(StepResult::succeeded);
+    }
+
+    public List<StepResult> results() {
+        return results;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Steps that determined the total time, first to last
+    public List<StepResult> criticalPath() {
+        StepResult last = null;
+        for (StepResult result : results) {
+            if (last == null || result.endNanos() > last.endNanos())
+                last = result;
+        }
+        List<StepResult> path = new ArrayList<>();
+        for (StepResult step = last; step != null; step = step.after())
+            path.add(0, step);
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        long sequential = 0;
+        for (StepResult result : results) {
+            long took = result.endNanos() - result.startNanos();
+            if (result.status() == StepResult.Status.DONE)
+                sequential += took;
+            builder.append(String.format("  %-24s %-25s %5d -> %5d ms%s%n", result.name(), result.status(),
+                    result.startNanos() / 1_000_000, result.endNanos() / 1_000_000,
+                    result.detail() == null ? "" : " (" + result.detail() + ")"));
+        }
+        builder.append(String.format("  Started in %d ms, steps took %d ms in total%n", elapsedNanos / 1_000_000,
+                sequential / 1_000_000));
+        builder.append("  Critical path:");
+        for (StepResult step : criticalPath())
+            builder.append(' ').append(step.name()).append(String.format(" (%d ms)",
+                    (step.endNanos() - step.startNanos()) / 1_000_000));
+        return builder.toString();
+    }
+}